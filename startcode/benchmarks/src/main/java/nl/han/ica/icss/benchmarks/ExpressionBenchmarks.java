@@ -0,0 +1,95 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.bytecode.ExpressionCompiler;
+import nl.han.ica.icss.bytecode.Program;
+import nl.han.ica.icss.bytecode.StackMachine;
+import nl.han.ica.icss.checker.Resolver;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures compiling every expression of a stylesheet to bytecode, and running the compiled
+ * stylesheet again, as a theme with different variables would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExpressionBenchmarks {
+
+    @Param({"level3", "rules-10000", "nesting-64"})
+    public String workload;
+
+    private final List<Expression> expressions = new ArrayList<>();
+    //Slot of each expression that is an assignment, -1 for declarations and conditions
+    private final List<Integer> targets = new ArrayList<>();
+    private Program[] programs;
+    private int[] programTargets;
+    private long[] slots;
+    private final StackMachine machine = new StackMachine();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        AST ast = StageBenchmarks.freshAST(Workloads.load(workload));
+        new Resolver().resolve(ast);
+        collect(ast.root.body);
+        slots = new long[Math.max(ast.slots, 1)];
+        programs = compile();
+        programTargets = targets.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    //In evaluation order, so every assignment is run before the expressions that read it
+    private void collect(List<ASTNode> body) {
+        for (ASTNode statement : body) {
+            if (statement instanceof VariableAssignment) {
+                expressions.add(((VariableAssignment) statement).expression);
+                targets.add(((VariableAssignment) statement).name.slot);
+            }
+        }
+        for (ASTNode statement : body) {
+            if (statement instanceof Stylerule) {
+                collect(((Stylerule) statement).body);
+            } else if (statement instanceof Declaration) {
+                expressions.add(((Declaration) statement).expression);
+                targets.add(-1);
+            } else if (statement instanceof IfClause) {
+                IfClause ifClause = (IfClause) statement;
+                expressions.add(ifClause.conditionalExpression);
+                targets.add(-1);
+                collect(ifClause.body);
+                if (ifClause.elseClause != null) {
+                    collect(ifClause.elseClause.body);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public Program[] compile() {
+        ExpressionCompiler compiler = new ExpressionCompiler();
+        Program[] result = new Program[expressions.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = compiler.compile(expressions.get(i));
+        }
+        return result;
+    }
+
+    @Benchmark
+    public long run() {
+        long sum = 0;
+        for (int i = 0; i < programs.length; i++) {
+            long value = machine.run(programs[i], slots);
+            if (programTargets[i] >= 0) {
+                slots[programTargets[i]] = value;
+            }
+            sum += value;
+        }
+        return sum;
+    }
+}
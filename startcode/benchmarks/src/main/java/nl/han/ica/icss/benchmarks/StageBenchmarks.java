@@ -0,0 +1,136 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.Resolver;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.ASTBuilder;
+import nl.han.ica.icss.parser.ASTListener;
+import nl.han.ica.icss.parser.ICSSLexer;
+import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.parser.ParserPool;
+import nl.han.ica.icss.transforms.EvalExpressions;
+import nl.han.ica.icss.transforms.RemoveIf;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.ConsoleErrorListener;
+import org.antlr.v4.runtime.ListTokenSource;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeWalker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures every pipeline stage on its own. Each benchmark starts from the output of the
+ * previous stage, prepared outside the measurement. The transforms, which change their input,
+ * are in {@link TransformBenchmarks}.
+ *
+ * Run with "-prof gc" to also see the allocation rate per stage.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageBenchmarks {
+
+    @Param({"level0", "level1", "level2", "level3", "rules-10000", "rules-100000", "nesting-64"})
+    public String workload;
+
+    private String source;
+    private List<? extends Token> tokens;
+    private ParseTree parseTree;
+    private AST checkedAST;
+    private AST transformedAST;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        source = Workloads.load(workload);
+
+        CommonTokenStream tokenStream = new CommonTokenStream(new ICSSLexer(CharStreams.fromString(source)));
+        tokenStream.fill();
+        tokens = tokenStream.getTokens();
+
+        parseTree = new ICSSParser(new CommonTokenStream(new ListTokenSource(tokens))).stylesheet();
+        checkedAST = freshAST(source);
+        new Checker().check(checkedAST);
+        transformedAST = freshAST(source);
+        new EvalExpressions().apply(transformedAST);
+        new RemoveIf().apply(transformedAST);
+    }
+
+    static AST freshAST(String source) {
+        Pipeline pipeline = new Pipeline();
+        pipeline.parseString(source);
+        if (!pipeline.isParsed()) {
+            throw new IllegalStateException(pipeline.getErrors().toString());
+        }
+        return pipeline.getAST();
+    }
+
+    @Benchmark
+    public List<Token> lex() {
+        CommonTokenStream tokenStream = new CommonTokenStream(new ICSSLexer(CharStreams.fromString(source)));
+        tokenStream.fill();
+        return tokenStream.getTokens();
+    }
+
+    @Benchmark
+    public ParseTree parse() {
+        ICSSParser parser = new ICSSParser(new CommonTokenStream(new ListTokenSource(tokens)));
+        return parser.stylesheet();
+    }
+
+    @Benchmark
+    public AST parseDirect() {
+        ICSSParser parser = new ICSSParser(new CommonTokenStream(new ListTokenSource(tokens)));
+        parser.setBuildParseTree(false);
+        ASTBuilder builder = new ASTBuilder();
+        parser.addParseListener(builder);
+        parser.stylesheet();
+        return builder.getAST();
+    }
+
+    /**
+     * Lexes and parses like the pipeline does: with this thread's pooled parser, SLL first and building the AST directly.
+     * Subtract {@link #lex()} for the parse alone.
+     */
+    @Benchmark
+    public AST parsePooled() {
+        try {
+            ParserPool.lex(CharStreams.fromString(source), ConsoleErrorListener.INSTANCE);
+            return ParserPool.buildStylesheet();
+        } finally {
+            ParserPool.release();
+        }
+    }
+
+    @Benchmark
+    public AST buildAST() {
+        ASTListener listener = new ASTListener();
+        new ParseTreeWalker().walk(listener, parseTree);
+        return listener.getAST();
+    }
+
+    @Benchmark
+    public AST resolve() {
+        new Resolver().resolve(checkedAST);
+        return checkedAST;
+    }
+
+    @Benchmark
+    public AST check() {
+        new Checker().check(checkedAST);
+        return checkedAST;
+    }
+
+    @Benchmark
+    public String generate() {
+        return new Generator().generate(transformedAST);
+    }
+}
@@ -0,0 +1,81 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Resolver;
+import nl.han.ica.icss.transforms.EvalExpressions;
+import nl.han.ica.icss.transforms.EvaluateAndPrune;
+import nl.han.ica.icss.transforms.FoldConstants;
+import nl.han.ica.icss.transforms.RemoveIf;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the transforms. They change the AST in place, so every invocation gets a fresh one
+ * from a per-invocation setup. JMH can only time such invocations reliably when they take
+ * milliseconds, so only the large workloads are measured here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransformBenchmarks {
+
+    @Param({"rules-10000", "rules-100000"})
+    public String workload;
+
+    private String source;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        source = Workloads.load(workload);
+    }
+
+    @Benchmark
+    public AST foldConstants(ResolvedAST resolved) {
+        new FoldConstants().apply(resolved.ast);
+        return resolved.ast;
+    }
+
+    @Benchmark
+    public AST evalExpressions(ResolvedAST resolved) {
+        new EvalExpressions().apply(resolved.ast);
+        return resolved.ast;
+    }
+
+    @Benchmark
+    public AST evaluateAndPrune(ResolvedAST resolved) {
+        new EvaluateAndPrune().apply(resolved.ast);
+        return resolved.ast;
+    }
+
+    @Benchmark
+    public AST removeIf(EvaluatedAST evaluated) {
+        new RemoveIf().apply(evaluated.ast);
+        return evaluated.ast;
+    }
+
+    @State(Scope.Thread)
+    public static class ResolvedAST {
+        AST ast;
+
+        @Setup(Level.Invocation)
+        public void setup(TransformBenchmarks benchmarks) {
+            ast = StageBenchmarks.freshAST(benchmarks.source);
+            new Resolver().resolve(ast);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class EvaluatedAST {
+        AST ast;
+
+        @Setup(Level.Invocation)
+        public void setup(TransformBenchmarks benchmarks) {
+            ast = StageBenchmarks.freshAST(benchmarks.source);
+            new EvalExpressions().apply(ast);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package nl.han.ica.icss.benchmarks;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Inputs for the benchmarks, by name:
+ * levelN is one of the example files bundled with ICSSTool,
+ * rules-N is a generated stylesheet with N stylerules,
+ * nesting-N is a generated stylesheet with one stylerule with if clauses nested N deep.
+ */
+final class Workloads {
+
+    private Workloads() { }
+
+    static String load(String name) {
+        if (name.startsWith("level")) {
+            return resource(name + ".icss");
+        } else if (name.startsWith("rules-")) {
+            return rules(Integer.parseInt(name.substring("rules-".length())));
+        } else if (name.startsWith("nesting-")) {
+            return nesting(Integer.parseInt(name.substring("nesting-".length())));
+        }
+        throw new IllegalArgumentException("Unknown workload " + name);
+    }
+
+    private static String resource(String name) {
+        try (InputStream in = Workloads.class.getClassLoader().getResourceAsStream(name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Unknown workload " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String rules(int count) {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.rules = count;
+        return generator.generate();
+    }
+
+    private static String nesting(int depth) {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        generator.rules = 1;
+        generator.ifNestingDepth = depth;
+        generator.elseProbability = 1;
+        return generator.generate();
+    }
+}
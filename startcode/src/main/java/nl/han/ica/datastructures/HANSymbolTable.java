@@ -0,0 +1,83 @@
+package nl.han.ica.datastructures;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Symbol table with O(1) lookup, scope enter and define.
+ *
+ * Every distinct name gets a slot the first time it is defined. The slot holds the value of the
+ * innermost definition, so a lookup is a single hash lookup and an array read, regardless of the
+ * number of open scopes. Each definition logs the value it replaced; exiting a scope restores the
+ * logged values back to the mark taken when the scope was entered.
+ */
+public class HANSymbolTable<T> implements IHANSymbolTable<T> {
+
+    private final HashMap<String, Integer> slots = new HashMap<>();
+    private Object[] values = new Object[16];
+
+    //Undo log: slot and previous value of every definition, newest last
+    private int[] undoSlots = new int[16];
+    private Object[] undoValues = new Object[16];
+    private int undoSize = 0;
+
+    //Undo log size at the time each open scope was entered
+    private int[] scopeMarks = new int[8];
+    private int depth = 0;
+
+    @Override
+    public void enterScope() {
+        if (depth == scopeMarks.length) {
+            scopeMarks = Arrays.copyOf(scopeMarks, depth * 2);
+        }
+        scopeMarks[depth++] = undoSize;
+    }
+
+    @Override
+    public void exitScope() {
+        if (depth == 0) {
+            throw new IllegalStateException("no open scope");
+        }
+        int mark = scopeMarks[--depth];
+        while (undoSize > mark) {
+            undoSize--;
+            values[undoSlots[undoSize]] = undoValues[undoSize];
+            undoValues[undoSize] = null;
+        }
+    }
+
+    @Override
+    public void define(String name, T value) {
+        if (depth == 0) {
+            throw new IllegalStateException("no open scope");
+        }
+        Integer slot = slots.get(name);
+        if (slot == null) {
+            slot = slots.size();
+            slots.put(name, slot);
+            if (slot == values.length) {
+                values = Arrays.copyOf(values, slot * 2);
+            }
+        }
+        if (undoSize == undoSlots.length) {
+            undoSlots = Arrays.copyOf(undoSlots, undoSize * 2);
+            undoValues = Arrays.copyOf(undoValues, undoSize * 2);
+        }
+        undoSlots[undoSize] = slot;
+        undoValues[undoSize] = values[slot];
+        undoSize++;
+        values[slot] = value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T lookup(String name) {
+        Integer slot = slots.get(name);
+        return slot == null ? null : (T) values[slot];
+    }
+
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+}
@@ -0,0 +1,34 @@
+package nl.han.ica.datastructures;
+
+public interface IHANSymbolTable<T> {
+    /**
+     * Opens a new, empty scope on top of the current one
+     */
+    void enterScope();
+
+    /**
+     * Closes the innermost scope. Every definition made in it is undone,
+     * so names it shadowed are visible again
+     */
+    void exitScope();
+
+    /**
+     * Defines name in the innermost scope, replacing an earlier definition in that scope
+     * @param name the name to define
+     * @param value value of the name, not null
+     */
+    void define(String name, T value);
+
+    /**
+     * Looks up name in the innermost scope that defines it
+     * @param name the name to look up
+     * @return value of name, or null when no open scope defines it
+     */
+    T lookup(String name);
+
+    /**
+     * Number of open scopes
+     * @return the number of scopes entered but not exited
+     */
+    int getDepth();
+}
@@ -0,0 +1,60 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.AST;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The outcome of a single {@link Pipeline#compile(String)} call: the (transformed) AST,
+ * every error reported along the way and the generated CSS.
+ * Instances are never modified after construction, so they can be handed between threads.
+ */
+public final class Compilation {
+
+    private final AST ast;
+    private final List<String> errors;
+    private final String css;
+    private final PipelineMetrics metrics;
+
+    public Compilation(AST ast, List<String> errors, String css) {
+        this(ast, errors, css, null);
+    }
+
+    public Compilation(AST ast, List<String> errors, String css, PipelineMetrics metrics) {
+        this.ast = ast;
+        this.errors = Collections.unmodifiableList(errors);
+        this.css = css;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return the transformed AST, or null when the result was served from a cache
+     */
+    public AST getAST() {
+        return ast;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the generated CSS, or null when parsing or checking failed
+     */
+    public String getCss() {
+        return css;
+    }
+
+    /**
+     * @return the cost of each stage, or null when metrics were not recorded
+     * @see Pipeline#setRecordMetrics(boolean)
+     */
+    public PipelineMetrics getMetrics() {
+        return metrics;
+    }
+
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+}
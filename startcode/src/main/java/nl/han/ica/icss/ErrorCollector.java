@@ -0,0 +1,25 @@
+package nl.han.ica.icss;
+
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+
+import java.util.List;
+
+/**
+ * Collects ANTLR syntax errors into the error list of a single compilation.
+ */
+class ErrorCollector extends BaseErrorListener {
+
+    private final List<String> errors;
+
+    ErrorCollector(List<String> errors) {
+        this.errors = errors;
+    }
+
+    @Override
+    public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                            int charPositionInLine, String msg, RecognitionException e) {
+        errors.add("Syntax error: " + msg);
+    }
+}
@@ -0,0 +1,128 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.EvaluateAndPrune;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Checks, evaluates and generates the stylerules of one resolved AST on a ForkJoinPool.
+ *
+ * The globals are handled first on the calling thread. Their types and values are then handed to
+ * every task as an array no one writes to anymore, and each task processes a run of consecutive
+ * stylerules with its own Checker, EvaluateAndPrune and output. The Resolver gave every stylerule
+ * slots of its own, so the tasks share nothing else. Generated CSS is concatenated in source order.
+ *
+ * Tasks run in the pool of the calling thread if it is a ForkJoinPool worker, otherwise in the common pool.
+ */
+final class ParallelRules {
+
+    //Fewer stylerules per task cost more in scheduling than they gain
+    private static final int MIN_RULES_PER_TASK = 64;
+    //Tasks per thread, so threads that finish early can take over work
+    private static final int TASKS_PER_THREAD = 4;
+
+    private final List<VariableAssignment> globals = new ArrayList<>();
+    private final List<List<Stylerule>> runs = new ArrayList<>();
+
+    ParallelRules(AST ast) {
+        List<Stylerule> rules = new ArrayList<>();
+        for (ASTNode child : ast.root.getChildren()) {
+            if (child instanceof VariableAssignment) {
+                globals.add((VariableAssignment) child);
+            } else if (child instanceof Stylerule) {
+                rules.add((Stylerule) child);
+            }
+        }
+        ForkJoinPool pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+        int tasks = Math.max(pool.getParallelism(), 1) * TASKS_PER_THREAD;
+        int runLength = Math.max(MIN_RULES_PER_TASK, (rules.size() + tasks - 1) / tasks);
+        for (int start = 0; start < rules.size(); start += runLength) {
+            runs.add(rules.subList(start, Math.min(start + runLength, rules.size())));
+        }
+    }
+
+    /**
+     * Checks the globals and then the stylerules in parallel; errors are left on the nodes as by {@link Checker#check}.
+     */
+    void check() {
+        Checker globalChecker = new Checker();
+        globalChecker.checkGlobals(globals);
+        ExpressionType[] globalTypes = globalChecker.getGlobalTypes();
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(runs.size());
+        for (List<Stylerule> run : runs) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                Checker checker = new Checker();
+                checker.setGlobalTypes(globalTypes);
+                for (Stylerule stylerule : run) {
+                    checker.checkStylerule(stylerule);
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+    }
+
+    /**
+     * Does what {@link EvaluateAndPrune#apply(AST)} does to ast, with the stylerules in parallel.
+     */
+    void evaluate(AST ast) {
+        EvaluateAndPrune globalEvaluator = new EvaluateAndPrune();
+        globalEvaluator.evaluateGlobals(globals);
+        long[] globalValues = globalEvaluator.getGlobalValues();
+
+        List<ForkJoinTask<?>> tasks = new ArrayList<>(runs.size());
+        for (List<Stylerule> run : runs) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                EvaluateAndPrune evaluator = new EvaluateAndPrune();
+                evaluator.setGlobalValues(globalValues);
+                for (Stylerule stylerule : run) {
+                    evaluator.apply(stylerule);
+                }
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+        ast.root.body.removeIf(child -> child instanceof VariableAssignment);
+    }
+
+    /**
+     * @return the CSS of the evaluated stylerules, as {@link Generator#generate(AST)} writes it
+     */
+    String generate() {
+        List<ForkJoinTask<StringBuilder>> tasks = new ArrayList<>(runs.size());
+        for (List<Stylerule> run : runs) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                Generator generator = new Generator();
+                StringBuilder css = new StringBuilder();
+                for (Stylerule stylerule : run) {
+                    try {
+                        generator.generate(stylerule, css);
+                    } catch (IOException e) {
+                        //A StringBuilder does not throw
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return css;
+            }));
+        }
+        ForkJoinTask.invokeAll(tasks);
+
+        int length = 1;
+        for (ForkJoinTask<StringBuilder> task : tasks) {
+            length += task.join().length();
+        }
+        StringBuilder css = new StringBuilder(length);
+        for (ForkJoinTask<StringBuilder> task : tasks) {
+            css.append(task.join());
+        }
+        return css.append('\n').toString();
+    }
+}
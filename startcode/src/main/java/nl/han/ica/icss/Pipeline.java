@@ -1,27 +1,57 @@
 package nl.han.ica.icss;
 
 import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.ast.types.PropertyRegistry;
 import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.Resolver;
 import nl.han.ica.icss.checker.SemanticError;
 import nl.han.ica.icss.generator.Generator;
 import nl.han.ica.icss.parser.ASTListener;
-import nl.han.ica.icss.parser.ICSSLexer;
-import nl.han.ica.icss.parser.ICSSParser;
-import nl.han.ica.icss.transforms.EvalExpressions;
-import nl.han.ica.icss.transforms.RemoveIf;
+import nl.han.ica.icss.parser.MappedCharStream;
+import nl.han.ica.icss.parser.ParserPool;
+import nl.han.ica.icss.transforms.EvaluateAndPrune;
+import nl.han.ica.icss.transforms.Transform;
 import org.antlr.v4.runtime.*;
-import org.antlr.v4.runtime.atn.ATNConfigSet;
-import org.antlr.v4.runtime.dfa.DFA;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.ParseTree;
 import org.antlr.v4.runtime.tree.ParseTreeWalker;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.List;
+import java.util.Properties;
 
-public class Pipeline implements ANTLRErrorListener {
+/**
+ * Runs the parse, check, transform and generate stages.
+ *
+ * {@link #compile(String)} keeps all state on the stack and may be called concurrently on a
+ * shared instance. The step-wise methods (parseString, check, transform, generate) drive the GUI
+ * and keep the AST and errors of the last step in this object, so they must not be shared.
+ */
+public class Pipeline {
 
+    public enum ParseMode {
+        /** Build the AST while parsing, without a parse tree (default) */
+        DIRECT,
+        /** Build the Antlr parse tree first and extract the AST with {@link ASTListener} */
+        PARSE_TREE
+    }
+
+    /** The release of the compiler, as in the pom */
+    public static final String VERSION = "2020.1.0-September";
+
+    //Written by Maven into the jar, see getBuildFingerprint()
+    private static final String BUILD_RESOURCE = "icss-build.properties";
+    private static volatile String buildFingerprint;
+
+    private final ParseMode parseMode;
+    private volatile boolean recordMetrics = false;
+    private volatile boolean parallelRules = false;
     private AST ast;
     private boolean parsed = false;
     private boolean checked = false;
@@ -29,6 +59,10 @@ public class Pipeline implements ANTLRErrorListener {
     private List<String> errors;
 
     public Pipeline() {
+        this(ParseMode.DIRECT);
+    }
+    public Pipeline(ParseMode parseMode) {
+        this.parseMode = parseMode;
         errors = new ArrayList<>();
     }
 
@@ -48,39 +82,159 @@ public class Pipeline implements ANTLRErrorListener {
         return transformed;
     }
 
-    public void parseString(String input) {
+    /**
+     * Records the wall time, CPU time and allocated bytes of every stage of {@link #compile(String)}
+     * in {@link Compilation#getMetrics()}. Off by default, as measuring costs a few microseconds per stage.
+     */
+    public void setRecordMetrics(boolean recordMetrics) {
+        this.recordMetrics = recordMetrics;
+    }
+    public boolean isRecordingMetrics() {
+        return recordMetrics;
+    }
 
-        //Lex (with Antlr's generated lexer)
-        CharStream inputStream = CharStreams.fromString(input);
-        ICSSLexer lexer = new ICSSLexer(inputStream);
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(this);
-        errors.clear();
-        try {
-            CommonTokenStream tokens = new CommonTokenStream(lexer);
+    /**
+     * Makes {@link #compile(String)} check, evaluate and generate the stylerules of a stylesheet in
+     * parallel once its globals are done, so a single large stylesheet uses every core. Off by default.
+     * With metrics recorded, the CPU time and allocations of those stages only count the calling thread.
+     */
+    public void setParallelRules(boolean parallelRules) {
+        this.parallelRules = parallelRules;
+    }
+    public boolean isParallelRules() {
+        return parallelRules;
+    }
 
-            //Parse (with Antlr's generated parser)
-            ICSSParser parser = new ICSSParser(tokens);
-            parser.removeErrorListeners();
-            parser.addErrorListener(this);
+    /**
+     * Identifies everything that decides the output for an input: the compiler version, the id Maven gives
+     * every build, and the properties and types of the default {@link PropertyRegistry}.
+     * Use it to key stored results, such as the entries of a {@link nl.han.ica.icss.cache.CompilationCache}.
+     * Classes compiled outside Maven have no build id; the time their classes were written is used instead.
+     */
+    public static String getBuildFingerprint() {
+        String fingerprint = buildFingerprint;
+        if (fingerprint == null) {
+            StringBuilder builder = new StringBuilder(VERSION).append('\n');
+            builder.append(readBuildId()).append('\n');
+            PropertyRegistry properties = PropertyRegistry.getDefault();
+            for (int id = 0; id < properties.size(); id++) {
+                builder.append(properties.getName(id)).append(": ").append(properties.getAllowedTypes(id)).append('\n');
+            }
+            fingerprint = builder.toString();
+            buildFingerprint = fingerprint;
+        }
+        return fingerprint;
+    }
 
-            ParseTree parseTree = parser.stylesheet();
+    private static String readBuildId() {
+        Properties build = new Properties();
+        try (InputStream in = Pipeline.class.getClassLoader().getResourceAsStream(BUILD_RESOURCE)) {
+            if (in != null) {
+                build.load(in);
+            }
+            String id = build.getProperty("build", "");
+            if (!id.isEmpty() && !id.startsWith("${")) {
+                return id;
+            }
+            URLConnection classFile = Pipeline.class.getResource("Pipeline.class").openConnection();
+            return "unfiltered-" + classFile.getLastModified();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-            //Extract AST from the Antlr parse tree
-            ASTListener listener = new ASTListener();
-            ParseTreeWalker walker = new ParseTreeWalker();
-            walker.walk(listener, parseTree);
+    /**
+     * Runs all stages on the input. Stops after the first stage that reports errors.
+     */
+    public Compilation compile(String input) {
+        return compile(CharStreams.fromString(input));
+    }
 
-            this.ast = listener.getAST();
+    /**
+     * Runs all stages on the contents of a file. The file is memory-mapped and lexed
+     * in place instead of being read into a String first.
+     */
+    public Compilation compile(Path file) throws IOException {
+        return compile(MappedCharStream.open(file));
+    }
 
-        } catch (RecognitionException e) {
-            this.ast = new AST();
-            errors.add(e.getMessage());
+    /**
+     * Runs all stages on input bytes, e.g. a file mapped with {@link MappedCharStream#map}.
+     * The bytes are read in place and the position of input is left as it is.
+     */
+    public Compilation compile(ByteBuffer input, String sourceName) {
+        return compile(MappedCharStream.of(input, sourceName));
+    }
 
-        } catch (ParseCancellationException e) {
-            this.ast = new AST();
-            errors.add("Syntax error");
+    private Compilation compile(CharStream input) {
+        StageRecorder recorder = new StageRecorder(recordMetrics);
+        List<String> errors = new ArrayList<>();
+        AST ast = parse(input, errors, recorder);
+        String css = null;
+        if (errors.isEmpty()) {
+            recorder.start();
+            (new Resolver()).resolve(ast);
+            recorder.stop(PipelineMetrics.RESOLVE);
+
+            if (parallelRules) {
+                return compileParallel(ast, errors, recorder);
+            }
+
+            recorder.start();
+            boolean valid = check(ast, errors);
+            recorder.stop(PipelineMetrics.CHECK);
+            if (valid) {
+                for (Transform transform : transforms()) {
+                    recorder.start();
+                    transform.apply(ast);
+                    recorder.stop(PipelineMetrics.TRANSFORM + transform.getClass().getSimpleName());
+                }
+                recorder.start();
+                css = generate(ast);
+                recorder.stop(PipelineMetrics.GENERATE);
+            }
         }
+        return new Compilation(ast, errors, css, recorder.getMetrics());
+    }
+
+    //The stages after resolving, with the stylerules spread over a ForkJoinPool
+    private static Compilation compileParallel(AST ast, List<String> errors, StageRecorder recorder) {
+        ParallelRules rules = new ParallelRules(ast);
+        String css = null;
+
+        recorder.start();
+        rules.check();
+        boolean valid = collectErrors(ast, errors);
+        recorder.stop(PipelineMetrics.CHECK);
+        if (valid) {
+            recorder.start();
+            rules.evaluate(ast);
+            recorder.stop(PipelineMetrics.TRANSFORM + EvaluateAndPrune.class.getSimpleName());
+
+            recorder.start();
+            css = rules.generate();
+            recorder.stop(PipelineMetrics.GENERATE);
+        }
+        return new Compilation(ast, errors, css, recorder.getMetrics());
+    }
+
+    /**
+     * Parses, resolves and checks the input once, for rendering with different global variables.
+     * Like {@link #compile(String)} this keeps no state in the pipeline.
+     */
+    public Template compileTemplate(String input) {
+        List<String> errors = new ArrayList<>();
+        AST ast = parse(CharStreams.fromString(input), errors, new StageRecorder(false));
+        if (errors.isEmpty()) {
+            (new Resolver()).resolve(ast);
+            check(ast, errors);
+        }
+        return new Template(ast, errors);
+    }
+
+    public void parseString(String input) {
+        errors.clear();
+        ast = parse(CharStreams.fromString(input), errors, new StageRecorder(false));
         parsed = errors.isEmpty();
         checked = transformed = false;
     }
@@ -88,18 +242,9 @@ public class Pipeline implements ANTLRErrorListener {
             if(ast == null)
                 return false;
 
-           (new Checker()).check(this.ast);
-
-            ArrayList<SemanticError> errors = this.ast.getErrors();
-            if (!errors.isEmpty()) {
-                for (SemanticError e : errors) {
-                    this.errors.add(e.toString());
-                }
-            }
-
-            checked = errors.isEmpty();
+            checked = check(ast, errors);
             transformed = false;
-            return errors.isEmpty();
+            return checked;
     }
 
     public void clearErrors(){
@@ -110,35 +255,75 @@ public class Pipeline implements ANTLRErrorListener {
         if(ast == null)
             return;
 
-        (new EvalExpressions()).apply(ast);
-        (new RemoveIf()).apply(ast);
+        transform(ast);
 
         transformed = errors.isEmpty();
     }
     public String generate() {
-        Generator generator = new Generator();
-        return generator.generate(ast);
+        return generate(ast);
+    }
+
+    private AST parse(CharStream inputStream, List<String> errors, StageRecorder recorder) {
+        try {
+            recorder.start();
+            ParserPool.lex(inputStream, new ErrorCollector(errors));
+            recorder.stop(PipelineMetrics.LEX);
+
+            //Parse (SLL first, LL on failure) with this thread's pooled Antlr parser
+            recorder.start();
+            if (parseMode == ParseMode.DIRECT) {
+                AST ast = ParserPool.buildStylesheet();
+                recorder.stop(PipelineMetrics.PARSE);
+                return ast;
+            }
+            ParseTree parseTree = ParserPool.parseStylesheet();
+            recorder.stop(PipelineMetrics.PARSE);
+
+            //Extract AST from the Antlr parse tree
+            recorder.start();
+            ASTListener listener = new ASTListener();
+            ParseTreeWalker walker = new ParseTreeWalker();
+            walker.walk(listener, parseTree);
+            recorder.stop(PipelineMetrics.BUILD);
+
+            return listener.getAST();
+
+        } catch (RecognitionException e) {
+            errors.add(e.getMessage());
+
+        } catch (ParseCancellationException e) {
+            errors.add("Syntax error");
+        } finally {
+            ParserPool.release();
+        }
+        return new AST();
     }
 
-    //Catch ANTLR errors
-    @Override
-    public void reportAmbiguity(Parser arg0, DFA arg1, int arg2, int arg3,
-                                boolean arg4, BitSet arg5, ATNConfigSet arg6) {
+    private static boolean check(AST ast, List<String> errors) {
+        (new Checker()).check(ast);
+        return collectErrors(ast, errors);
     }
 
-    @Override
-    public void reportAttemptingFullContext(Parser arg0, DFA arg1, int arg2,
-                                            int arg3, BitSet arg4, ATNConfigSet arg5) {
+    private static boolean collectErrors(AST ast, List<String> errors) {
+        ArrayList<SemanticError> semanticErrors = ast.getErrors();
+        for (SemanticError e : semanticErrors) {
+            errors.add(e.toString());
+        }
+        return semanticErrors.isEmpty();
     }
 
-    @Override
-    public void reportContextSensitivity(Parser arg0, DFA arg1, int arg2,
-                                         int arg3, int arg4, ATNConfigSet arg5) {
+    private static void transform(AST ast) {
+        for (Transform transform : transforms()) {
+            transform.apply(ast);
+        }
     }
 
-    @Override
-    public void syntaxError(Recognizer<?, ?> arg0, Object arg1, int arg2,
-                            int arg3, String arg4, RecognitionException arg5) {
-        errors.add("Syntax error: " + arg4);
+    private static Transform[] transforms() {
+        return new Transform[] { new EvaluateAndPrune() };
+    }
+
+    private static String generate(AST ast) {
+        Generator generator = new Generator();
+        return generator.generate(ast);
     }
 }
@@ -0,0 +1,78 @@
+package nl.han.ica.icss;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-stage costs of a compilation, in the order the stages ran. The stages are
+ * lex, parse, build (only with {@link Pipeline.ParseMode#PARSE_TREE}, otherwise the AST is built
+ * during parse), resolve, check, transform:&lt;Transform class&gt; for each transform, and generate.
+ * Stages after the first one that reported errors are missing.
+ */
+public final class PipelineMetrics {
+
+    public static final String LEX = "lex";
+    public static final String PARSE = "parse";
+    public static final String BUILD = "build";
+    public static final String RESOLVE = "resolve";
+    public static final String CHECK = "check";
+    public static final String TRANSFORM = "transform:";
+    public static final String GENERATE = "generate";
+
+    private final List<StageMetrics> stages;
+
+    public PipelineMetrics(List<StageMetrics> stages) {
+        this.stages = Collections.unmodifiableList(new ArrayList<>(stages));
+    }
+
+    /**
+     * Adds up the metrics of many compilations stage by stage. Null entries are skipped.
+     */
+    public static PipelineMetrics total(Iterable<PipelineMetrics> metrics) {
+        Map<String, StageMetrics> totals = new LinkedHashMap<>();
+        for (PipelineMetrics m : metrics) {
+            if (m != null) {
+                for (StageMetrics stage : m.stages) {
+                    totals.merge(stage.getStage(), stage, StageMetrics::plus);
+                }
+            }
+        }
+        return new PipelineMetrics(new ArrayList<>(totals.values()));
+    }
+
+    public List<StageMetrics> getStages() {
+        return stages;
+    }
+
+    /**
+     * @return the metrics of the named stage, or null if it did not run
+     */
+    public StageMetrics getStage(String stage) {
+        for (StageMetrics s : stages) {
+            if (s.getStage().equals(stage)) {
+                return s;
+            }
+        }
+        return null;
+    }
+
+    public long getWallNanos() {
+        long total = 0;
+        for (StageMetrics s : stages) {
+            total += s.getWallNanos();
+        }
+        return total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        for (StageMetrics stage : stages) {
+            s.append(stage).append('\n');
+        }
+        return s.toString();
+    }
+}
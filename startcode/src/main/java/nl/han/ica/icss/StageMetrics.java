@@ -0,0 +1,51 @@
+package nl.han.ica.icss;
+
+/**
+ * Cost of one pipeline stage in one compilation, measured on the compiling thread.
+ * CPU time and allocated bytes are -1 when the JVM does not support measuring them.
+ */
+public final class StageMetrics {
+
+    private final String stage;
+    private final long wallNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+
+    public StageMetrics(String stage, long wallNanos, long cpuNanos, long allocatedBytes) {
+        this.stage = stage;
+        this.wallNanos = wallNanos;
+        this.cpuNanos = cpuNanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public long getCpuNanos() {
+        return cpuNanos;
+    }
+
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    StageMetrics plus(StageMetrics other) {
+        return new StageMetrics(stage, wallNanos + other.wallNanos,
+                sum(cpuNanos, other.cpuNanos), sum(allocatedBytes, other.allocatedBytes));
+    }
+
+    private static long sum(long a, long b) {
+        return a < 0 || b < 0 ? -1 : a + b;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-28s %10.3f ms wall %10.3f ms cpu %12d bytes",
+                stage, wallNanos / 1e6, cpuNanos / 1e6, allocatedBytes);
+    }
+}
@@ -0,0 +1,73 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.events.PhaseEvent;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures consecutive stages on the current thread. Every stage is reported as a {@link PhaseEvent}
+ * to JFR; the ThreadMXBean measurements are only taken when metrics are enabled.
+ */
+class StageRecorder {
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    //getThreadAllocatedBytes is only available on the HotSpot extension of ThreadMXBean
+    private static final com.sun.management.ThreadMXBean ALLOCATIONS =
+            THREADS instanceof com.sun.management.ThreadMXBean
+                    && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+                    ? (com.sun.management.ThreadMXBean) THREADS
+                    : null;
+    private static final boolean CPU_TIME = THREADS.isCurrentThreadCpuTimeSupported();
+
+    private final boolean enabled;
+    private final List<StageMetrics> stages = new ArrayList<>();
+    private PhaseEvent event;
+    private long wallStart;
+    private long cpuStart;
+    private long allocatedStart;
+
+    StageRecorder(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    void start() {
+        event = new PhaseEvent();
+        event.begin();
+        if (!enabled) {
+            return;
+        }
+        cpuStart = cpuTime();
+        allocatedStart = allocatedBytes();
+        wallStart = System.nanoTime();
+    }
+
+    void stop(String stage) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.phase = stage;
+            event.commit();
+        }
+        if (!enabled) {
+            return;
+        }
+        long wall = System.nanoTime() - wallStart;
+        long cpu = CPU_TIME ? cpuTime() - cpuStart : -1;
+        long allocated = ALLOCATIONS != null ? allocatedBytes() - allocatedStart : -1;
+        stages.add(new StageMetrics(stage, wall, cpu, allocated));
+    }
+
+    PipelineMetrics getMetrics() {
+        return enabled ? new PipelineMetrics(stages) : null;
+    }
+
+    private static long cpuTime() {
+        return CPU_TIME ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATIONS != null ? ALLOCATIONS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+}
@@ -0,0 +1,162 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.checker.Checker;
+import nl.han.ica.icss.checker.Resolver;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.parser.ASTBuilder;
+import nl.han.ica.icss.parser.ICSSLexer;
+import nl.han.ica.icss.parser.ICSSParser;
+import nl.han.ica.icss.transforms.EvaluateAndPrune;
+import org.antlr.v4.runtime.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compiles a stylesheet rule by rule, for inputs too large to hold in memory.
+ *
+ * The input is lexed and parsed through unbuffered streams. Once the global variable assignments
+ * are complete they are checked and evaluated, and from then on every stylerule is checked,
+ * transformed and written to the output as soon as its closing brace is parsed. Memory use is
+ * bounded by the globals plus the largest single stylerule.
+ *
+ * Output already written stays written: a stylerule with semantic errors is skipped, and
+ * after a syntax error no further stylerules are emitted.
+ */
+public class StreamingCompiler {
+
+    /**
+     * Compiles input to output.
+     * @return every error reported, empty when the whole stylesheet was compiled
+     */
+    public List<String> compile(Reader input, Writer output) throws IOException {
+        List<String> errors = new ArrayList<>();
+        ErrorCollector errorCollector = new ErrorCollector(errors);
+
+        ICSSLexer lexer = new ICSSLexer(new UnbufferedCharStream(input));
+        //Tokens must own their text, the characters they were read from are discarded
+        lexer.setTokenFactory(new CommonTokenFactory(true));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(errorCollector);
+
+        ICSSParser parser = new ICSSParser(new UnbufferedTokenStream<>(lexer));
+        parser.setBuildParseTree(false);
+        parser.setErrorHandler(new StreamingErrorStrategy());
+        parser.removeErrorListeners();
+        parser.addErrorListener(errorCollector);
+        parser.addErrorListener(new BaseErrorListener() {
+            @Override
+            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                    int charPositionInLine, String msg, RecognitionException e) {
+                parser.removeParseListeners();
+            }
+        });
+
+        RuleCompiler ruleCompiler = new RuleCompiler(output, errors);
+        parser.addParseListener(ruleCompiler);
+        try {
+            parser.stylesheet();
+            output.write("\n");
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        output.flush();
+        return Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * The default strategy quotes every token from the start of the failed decision up to the offending one,
+     * which an unbuffered token stream may no longer hold. This one quotes the offending token only.
+     */
+    private static class StreamingErrorStrategy extends DefaultErrorStrategy {
+        @Override
+        protected void reportNoViableAlternative(Parser recognizer, NoViableAltException e) {
+            recognizer.notifyErrorListeners(e.getOffendingToken(),
+                    "no viable alternative at input " + getTokenErrorDisplay(e.getOffendingToken()), e);
+        }
+    }
+
+    private static class RuleCompiler extends ASTBuilder {
+
+        private final Writer output;
+        private final List<String> errors;
+        private final Resolver resolver = new Resolver();
+        private final Checker checker = new Checker();
+        private final EvaluateAndPrune evaluateAndPrune = new EvaluateAndPrune();
+        private final Generator generator = new Generator();
+        private List<VariableAssignment> globals;
+        private boolean globalsValid;
+
+        RuleCompiler(Writer output, List<String> errors) {
+            this.output = output;
+            this.errors = errors;
+        }
+
+        @Override
+        public void enterStylerule(ICSSParser.StyleruleContext ctx) {
+            completeGlobals();
+            super.enterStylerule(ctx);
+        }
+
+        @Override
+        public void exitStylesheet(ICSSParser.StylesheetContext ctx) {
+            completeGlobals();
+            super.exitStylesheet(ctx);
+        }
+
+        //The grammar puts all global assignments before the first stylerule
+        private void completeGlobals() {
+            if (globals != null) {
+                return;
+            }
+            Stylesheet stylesheet = (Stylesheet) getCurrentContainer();
+            globals = new ArrayList<>();
+            for (ASTNode child : stylesheet.getChildren()) {
+                globals.add((VariableAssignment) child);
+            }
+            resolver.resolveGlobals(globals);
+            checker.checkGlobals(globals);
+            globalsValid = collectErrors(stylesheet);
+            if (globalsValid) {
+                evaluateAndPrune.evaluateGlobals(globals);
+            }
+        }
+
+        @Override
+        protected void addStylerule(Stylesheet stylesheet, Stylerule stylerule) {
+            resolver.resolveStylerule(stylerule);
+            checker.checkStylerule(stylerule);
+            if (!collectErrors(stylerule) || !globalsValid) {
+                return;
+            }
+            evaluateAndPrune.apply(stylerule);
+            try {
+                generator.generate(stylerule, output);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        //Walks the node itself, like AST.getErrors, so a streamed stylerule needs no AST of its own
+        private boolean collectErrors(ASTNode node) {
+            int before = errors.size();
+            addErrors(node);
+            return errors.size() == before;
+        }
+
+        private void addErrors(ASTNode node) {
+            if (node.hasError()) {
+                errors.add(node.getError().toString());
+            }
+            for (ASTNode child : node.getChildren()) {
+                addErrors(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.bytecode.ExpressionCompiler;
+import nl.han.ica.icss.bytecode.Program;
+import nl.han.ica.icss.bytecode.StackMachine;
+import nl.han.ica.icss.generator.Generator;
+import nl.han.ica.icss.transforms.Values;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A stylesheet that was parsed, resolved and checked once, and can be rendered to CSS many times
+ * with different values for its global variables, e.g. one theme per tenant.
+ *
+ * Every expression is compiled to a {@link Program}; rendering runs the programs of the globals,
+ * then per stylerule the assignments and the declarations of the if and else bodies that apply.
+ * The parsed AST is not kept and templates are never modified, so one template can be rendered
+ * from many threads at once.
+ *
+ * Create templates with {@link Pipeline#compileTemplate(String)}.
+ */
+public final class Template {
+
+    private final List<String> errors;
+    private final int slotCount;
+    private final String[] globalNames;
+    private final int[] globalSlots;
+    private final Program[] globalPrograms;
+    //Value of every global with its assignments from the source, by slot
+    private final long[] defaults;
+    private final Rule[] rules;
+
+    Template(AST ast, List<String> errors) {
+        this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+        List<VariableAssignment> globals = new ArrayList<>();
+        List<Rule> rules = new ArrayList<>();
+        ExpressionCompiler compiler = new ExpressionCompiler();
+        if (errors.isEmpty()) {
+            for (ASTNode child : ast.root.getChildren()) {
+                if (child instanceof VariableAssignment) {
+                    globals.add((VariableAssignment) child);
+                } else if (child instanceof Stylerule) {
+                    Stylerule stylerule = (Stylerule) child;
+                    rules.add(new Rule(stylerule.selectors.get(0).toString(), compileBlock(stylerule.body, compiler)));
+                }
+            }
+        }
+        slotCount = Math.max(ast.slots, 0);
+        globalNames = new String[globals.size()];
+        globalSlots = new int[globals.size()];
+        globalPrograms = new Program[globals.size()];
+        for (int i = 0; i < globals.size(); i++) {
+            globalNames[i] = globals.get(i).name.name;
+            globalSlots[i] = globals.get(i).name.slot;
+            globalPrograms[i] = compiler.compile(globals.get(i).expression);
+        }
+        this.rules = rules.toArray(new Rule[0]);
+        defaults = new long[slotCount];
+        evaluateGlobals(Map.of(), defaults, new StackMachine());
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+
+    /**
+     * @return the names of the global variables that can be overridden, in source order
+     */
+    public List<String> getVariables() {
+        List<String> names = new ArrayList<>();
+        for (String name : globalNames) {
+            if (!names.contains(name)) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * @return the CSS with the global variables as assigned in the source
+     */
+    public String render() {
+        return render(Map.of());
+    }
+
+    /**
+     * @param overrides literal values replacing the assignments of global variables, by name.
+     *                  Globals computed from an overridden variable are computed from its new value.
+     * @return the CSS for these values
+     * @throws IllegalArgumentException if a name is not a global variable, or a value's type differs from the type it was checked with
+     * @throws IllegalStateException if the template has errors
+     */
+    public String render(Map<String, ? extends Literal> overrides) {
+        StringBuilder css = new StringBuilder();
+        try {
+            render(overrides, css);
+        } catch (IOException e) {
+            //A StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return css.toString();
+    }
+
+    /**
+     * Writes the CSS for the given values into out, see {@link #render(Map)}.
+     */
+    public void render(Map<String, ? extends Literal> overrides, Appendable out) throws IOException {
+        if (!isSuccessful()) {
+            throw new IllegalStateException("Template has errors: " + errors);
+        }
+        StackMachine machine = new StackMachine();
+        long[] slots = new long[slotCount];
+        evaluateGlobals(validate(overrides), slots, machine);
+
+        Generator generator = new Generator();
+        for (Rule rule : rules) {
+            out.append(rule.selector).append(" {\n");
+            renderBlock(rule.body, slots, machine, generator, out);
+            out.append("}\n");
+        }
+        out.append('\n');
+    }
+
+    private Map<String, Long> validate(Map<String, ? extends Literal> overrides) {
+        Map<String, Long> values = new HashMap<>();
+        for (Map.Entry<String, ? extends Literal> override : overrides.entrySet()) {
+            long value = Values.of(override.getValue());
+            boolean found = false;
+            for (int i = 0; i < globalNames.length; i++) {
+                if (globalNames[i].equals(override.getKey())) {
+                    found = true;
+                    if (Values.tag(defaults[globalSlots[i]]) != Values.tag(value)) {
+                        throw new IllegalArgumentException("Variable '" + override.getKey() + "' cannot hold " + override.getValue().getNodeLabel());
+                    }
+                }
+            }
+            if (!found) {
+                throw new IllegalArgumentException("Variable '" + override.getKey() + "' is not a global variable");
+            }
+            values.put(override.getKey(), value);
+        }
+        return values;
+    }
+
+    private void evaluateGlobals(Map<String, Long> overrides, long[] slots, StackMachine machine) {
+        for (int i = 0; i < globalPrograms.length; i++) {
+            Long override = overrides.get(globalNames[i]);
+            slots[globalSlots[i]] = override != null ? override : machine.run(globalPrograms[i], slots);
+        }
+    }
+
+    private static void renderBlock(Statement[] body, long[] slots, StackMachine machine, Generator generator, Appendable out) throws IOException {
+        for (Statement statement : body) {
+            long value = machine.run(statement.program, slots);
+            if (statement.slot >= 0) {
+                slots[statement.slot] = value;
+            } else if (statement.property != null) {
+                out.append('\t');
+                generator.generate(statement.property, Values.toLiteral(value), out);
+            } else if (Values.value(value) != 0) {
+                renderBlock(statement.body, slots, machine, generator, out);
+            } else if (statement.elseBody != null) {
+                renderBlock(statement.elseBody, slots, machine, generator, out);
+            }
+        }
+    }
+
+    //Assignments come first, in the order the Resolver handed out their slots
+    private static Statement[] compileBlock(List<ASTNode> body, ExpressionCompiler compiler) {
+        List<Statement> statements = new ArrayList<>();
+        for (ASTNode node : body) {
+            if (node instanceof VariableAssignment) {
+                VariableAssignment variableAssignment = (VariableAssignment) node;
+                statements.add(new Statement(compiler.compile(variableAssignment.expression), variableAssignment.name.slot, null, null, null));
+            }
+        }
+        for (ASTNode node : body) {
+            if (node instanceof Declaration) {
+                Declaration declaration = (Declaration) node;
+                statements.add(new Statement(compiler.compile(declaration.expression), -1, declaration.property.name, null, null));
+            } else if (node instanceof IfClause) {
+                IfClause ifClause = (IfClause) node;
+                statements.add(new Statement(compiler.compile(ifClause.conditionalExpression), -1, null,
+                        compileBlock(ifClause.body, compiler),
+                        ifClause.elseClause != null ? compileBlock(ifClause.elseClause.body, compiler) : null));
+            }
+        }
+        return statements.toArray(new Statement[0]);
+    }
+
+    private static final class Rule {
+        final String selector;
+        final Statement[] body;
+
+        Rule(String selector, Statement[] body) {
+            this.selector = selector;
+            this.body = body;
+        }
+    }
+
+    //An assignment to slot, a declaration of property, or an if clause with a body and optional else body
+    private static final class Statement {
+        final Program program;
+        final int slot;
+        final String property;
+        final Statement[] body;
+        final Statement[] elseBody;
+
+        Statement(Program program, int slot, String property, Statement[] body, Statement[] elseBody) {
+            this.program = program;
+            this.slot = slot;
+            this.property = property;
+            this.body = body;
+            this.elseBody = elseBody;
+        }
+    }
+}
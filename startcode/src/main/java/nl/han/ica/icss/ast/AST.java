@@ -9,6 +9,8 @@ import java.util.Objects;
 public class AST {
 	//The root of the tree
 	public Stylesheet root;
+	//Number of variable slots handed out by the Resolver; -1 while unresolved
+	public int slots = -1;
 
 	public AST() {
 		root = new Stylesheet();
@@ -19,6 +21,46 @@ public class AST {
 	public void setRoot(Stylesheet stylesheet) {
 		root = stylesheet;
 	}
+	/**
+	 * Copies the stylesheet and every statement in it: stylerules, declarations, if and else clauses and
+	 * variable assignments, with new body lists. Expressions, selectors and property names are shared
+	 * with this tree, as the transforms replace them instead of changing them. Errors are not copied.
+	 */
+	public AST copy() {
+		AST copy = new AST(new Stylesheet(copyBody(root.body)));
+		copy.slots = slots;
+		return copy;
+	}
+	private static ArrayList<ASTNode> copyBody(ArrayList<ASTNode> body) {
+		ArrayList<ASTNode> copy = new ArrayList<>(body.size());
+		for (ASTNode node : body) {
+			copy.add(copyStatement(node));
+		}
+		return copy;
+	}
+	private static ASTNode copyStatement(ASTNode node) {
+		if (node instanceof Stylerule) {
+			Stylerule stylerule = new Stylerule();
+			stylerule.selectors = new ArrayList<>(((Stylerule) node).selectors);
+			stylerule.body = copyBody(((Stylerule) node).body);
+			return stylerule;
+		} else if (node instanceof Declaration) {
+			Declaration declaration = new Declaration();
+			declaration.property = ((Declaration) node).property;
+			declaration.expression = ((Declaration) node).expression;
+			return declaration;
+		} else if (node instanceof IfClause) {
+			IfClause ifClause = (IfClause) node;
+			return new IfClause(ifClause.conditionalExpression, copyBody(ifClause.body),
+					ifClause.elseClause != null ? new ElseClause(copyBody(ifClause.elseClause.body)) : null);
+		} else if (node instanceof VariableAssignment) {
+			VariableAssignment variableAssignment = new VariableAssignment();
+			variableAssignment.name = ((VariableAssignment) node).name;
+			variableAssignment.expression = ((VariableAssignment) node).expression;
+			return variableAssignment;
+		}
+		return node;
+	}
     public ArrayList<SemanticError> getErrors() {
 	    ArrayList<SemanticError> errors = new ArrayList<>();
         collectErrors(errors,root);
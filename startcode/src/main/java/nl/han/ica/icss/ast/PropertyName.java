@@ -1,8 +1,13 @@
 package nl.han.ica.icss.ast;
 
+import nl.han.ica.icss.ast.types.PropertyRegistry;
+
 public class PropertyName extends ASTNode {
 
+    //For a known property this is always the instance in the default PropertyRegistry, so it can be compared with ==
     public String name;
+    //Id of the property in the default PropertyRegistry, -1 for an unknown property
+    public int id = -1;
 
     public PropertyName() {
         super();
@@ -10,7 +15,9 @@ public class PropertyName extends ASTNode {
     }
     public PropertyName(String name) {
         super();
-        this.name = name;
+        PropertyRegistry properties = PropertyRegistry.getDefault();
+        this.id = properties.idOf(name);
+        this.name = properties.canonical(name);
     }
 
     @Override
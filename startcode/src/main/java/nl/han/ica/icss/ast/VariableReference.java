@@ -5,6 +5,8 @@ import java.util.Objects;
 public class VariableReference extends Expression {
 
 	public String name;
+	//Slot of the assignment this reference reads, set by the Resolver; -1 while unresolved
+	public int slot = -1;
 	
 	public VariableReference(String name) {
 		super();
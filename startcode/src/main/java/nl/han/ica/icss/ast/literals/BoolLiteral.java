@@ -4,7 +4,7 @@ import nl.han.ica.icss.ast.Literal;
 import java.util.Objects;
 
 public class BoolLiteral extends Literal {
-    public boolean value;
+    public final boolean value;
 
     public BoolLiteral(boolean value) {
         this.value = value;
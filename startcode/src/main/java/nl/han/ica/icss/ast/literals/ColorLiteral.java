@@ -5,7 +5,7 @@ import nl.han.ica.icss.ast.Literal;
 import java.util.Objects;
 
 public class ColorLiteral extends Literal {
-    public String value;
+    public final String value;
 
     public ColorLiteral(String value) {
         this.value = value;
@@ -0,0 +1,173 @@
+package nl.han.ica.icss.ast.literals;
+
+import nl.han.ica.icss.ast.Literal;
+
+/**
+ * Canonicalising factories for literals. Literal values are final, so the parser and the
+ * transforms can share one instance for every occurrence of the same value.
+ *
+ * Booleans and the values 0 to {@value #SMALL_VALUES} - 1 of pixels, percentages and scalars are
+ * created up front. Other values and colours go through a bounded direct-mapped cache: a colliding
+ * value simply replaces the previous entry, so the cache never holds more than {@value #CACHE_SIZE} literals.
+ * The cache is shared between threads without locking; entries are immutable, so a lost update only
+ * costs an extra allocation.
+ *
+ * Shared literals must not be given semantic errors; report those on the enclosing node instead.
+ */
+public final class Literals {
+
+    public static final BoolLiteral TRUE = new BoolLiteral(true);
+    public static final BoolLiteral FALSE = new BoolLiteral(false);
+
+    private static final int SMALL_VALUES = 256;
+    private static final int CACHE_SIZE = 4096;
+
+    private static final int PIXEL_KIND = 1;
+    private static final int PERCENTAGE_KIND = 2;
+    private static final int SCALAR_KIND = 3;
+    private static final int COLOR_KIND = 4;
+
+    private static final PixelLiteral[] PIXELS = new PixelLiteral[SMALL_VALUES];
+    private static final PercentageLiteral[] PERCENTAGES = new PercentageLiteral[SMALL_VALUES];
+    private static final ScalarLiteral[] SCALARS = new ScalarLiteral[SMALL_VALUES];
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final Entry[] cache = new Entry[CACHE_SIZE];
+
+    static {
+        for (int i = 0; i < SMALL_VALUES; i++) {
+            PIXELS[i] = new PixelLiteral(i);
+            PERCENTAGES[i] = new PercentageLiteral(i);
+            SCALARS[i] = new ScalarLiteral(i);
+        }
+    }
+
+    private Literals() {
+    }
+
+    public static BoolLiteral bool(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    public static BoolLiteral bool(String text) {
+        return bool(text.equals("TRUE"));
+    }
+
+    public static PixelLiteral pixel(int value) {
+        if (value >= 0 && value < SMALL_VALUES) {
+            return PIXELS[value];
+        }
+        Literal cached = cached(PIXEL_KIND, value);
+        if (cached != null) {
+            return (PixelLiteral) cached;
+        }
+        return store(PIXEL_KIND, value, new PixelLiteral(value));
+    }
+
+    /**
+     * @param text a pixel size as lexed, e.g. "10px"
+     */
+    public static PixelLiteral pixel(String text) {
+        return pixel(Integer.parseInt(text, 0, text.length() - 2, 10));
+    }
+
+    public static PercentageLiteral percentage(int value) {
+        if (value >= 0 && value < SMALL_VALUES) {
+            return PERCENTAGES[value];
+        }
+        Literal cached = cached(PERCENTAGE_KIND, value);
+        if (cached != null) {
+            return (PercentageLiteral) cached;
+        }
+        return store(PERCENTAGE_KIND, value, new PercentageLiteral(value));
+    }
+
+    /**
+     * @param text a percentage as lexed, e.g. "50%"
+     */
+    public static PercentageLiteral percentage(String text) {
+        return percentage(Integer.parseInt(text, 0, text.length() - 1, 10));
+    }
+
+    public static ScalarLiteral scalar(int value) {
+        if (value >= 0 && value < SMALL_VALUES) {
+            return SCALARS[value];
+        }
+        Literal cached = cached(SCALAR_KIND, value);
+        if (cached != null) {
+            return (ScalarLiteral) cached;
+        }
+        return store(SCALAR_KIND, value, new ScalarLiteral(value));
+    }
+
+    public static ScalarLiteral scalar(String text) {
+        return scalar(Integer.parseInt(text));
+    }
+
+    /**
+     * @param rgb a 24 bit RGB number
+     * @return a colour literal with the text #rrggbb in lower case, like the lexer accepts colours
+     */
+    public static ColorLiteral color(int rgb) {
+        Literal cached = cached(COLOR_KIND, rgb);
+        if (cached != null) {
+            return (ColorLiteral) cached;
+        }
+        return store(COLOR_KIND, rgb, new ColorLiteral(colorText(rgb)));
+    }
+
+    /**
+     * @param text a colour as lexed, e.g. "#ff0000"
+     */
+    public static ColorLiteral color(String text) {
+        int rgb = Integer.parseInt(text, 1, text.length(), 16);
+        Literal cached = cached(COLOR_KIND, rgb);
+        //Keeps the spelling of the source for colours that are not in the canonical form
+        if (cached != null && ((ColorLiteral) cached).value.equals(text)) {
+            return (ColorLiteral) cached;
+        }
+        return store(COLOR_KIND, rgb, new ColorLiteral(text));
+    }
+
+    private static Literal cached(int kind, int value) {
+        long key = key(kind, value);
+        Entry entry = cache[index(key)];
+        return entry != null && entry.key == key ? entry.literal : null;
+    }
+
+    private static <T extends Literal> T store(int kind, int value, T literal) {
+        long key = key(kind, value);
+        cache[index(key)] = new Entry(key, literal);
+        return literal;
+    }
+
+    private static long key(int kind, int value) {
+        return (long) kind << 32 | (value & 0xFFFFFFFFL);
+    }
+
+    private static int index(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 52) & (CACHE_SIZE - 1);
+    }
+
+    private static String colorText(int rgb) {
+        char[] text = new char[7];
+        text[0] = '#';
+        for (int i = 6; i >= 1; i--) {
+            text[i] = HEX_DIGITS[rgb & 0xF];
+            rgb >>>= 4;
+        }
+        return new String(text);
+    }
+
+    private static final class Entry {
+        final long key;
+        final Literal literal;
+
+        Entry(long key, Literal literal) {
+            this.key = key;
+            this.literal = literal;
+        }
+    }
+}
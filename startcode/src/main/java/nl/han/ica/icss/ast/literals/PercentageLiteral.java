@@ -5,7 +5,7 @@ import nl.han.ica.icss.ast.Literal;
 import java.util.Objects;
 
 public class PercentageLiteral extends Literal {
-    public int value;
+    public final int value;
 
     public PercentageLiteral(int value) {
         this.value = value;
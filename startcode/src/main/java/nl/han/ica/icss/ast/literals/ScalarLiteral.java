@@ -5,7 +5,7 @@ import nl.han.ica.icss.ast.Literal;
 import java.util.Objects;
 
 public class ScalarLiteral extends Literal {
-    public int value;
+    public final int value;
 
     public ScalarLiteral(int value) {
         this.value = value;
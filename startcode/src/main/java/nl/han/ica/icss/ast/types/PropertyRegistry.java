@@ -0,0 +1,129 @@
+package nl.han.ica.icss.ast.types;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The CSS properties the checker knows, each with the expression types its value may have.
+ *
+ * Every property gets an id, its position in the registry. {@link nl.han.ica.icss.ast.PropertyName}
+ * looks its id up in the default registry once, so checking a declaration is an array access.
+ * The default registry is read from the resource {@value #DEFAULT_RESOURCE}, with lines of the form
+ * "property-name: TYPE..." and # comments.
+ */
+public final class PropertyRegistry {
+
+    public static final String DEFAULT_RESOURCE = "css-properties.txt";
+
+    private static final PropertyRegistry DEFAULT = fromResource(DEFAULT_RESOURCE);
+
+    private final HashMap<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+    private final List<Set<ExpressionType>> allowedTypes = new ArrayList<>();
+
+    private PropertyRegistry() {
+    }
+
+    public static PropertyRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    public static PropertyRegistry fromResource(String resource) {
+        try (InputStream in = PropertyRegistry.class.getClassLoader().getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Property registry " + resource + " not found");
+            }
+            return load(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static PropertyRegistry load(Reader reader) throws IOException {
+        PropertyRegistry registry = new PropertyRegistry();
+        BufferedReader lines = new BufferedReader(reader);
+        String line;
+        int lineNumber = 0;
+        while ((line = lines.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Line " + lineNumber + ": expected 'property-name: TYPE...'");
+            }
+            EnumSet<ExpressionType> types = EnumSet.noneOf(ExpressionType.class);
+            for (String type : line.substring(colon + 1).strip().split("\\s+")) {
+                try {
+                    types.add(ExpressionType.valueOf(type));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": unknown type '" + type + "'");
+                }
+            }
+            registry.add(line.substring(0, colon).strip(), types);
+        }
+        return registry;
+    }
+
+    private void add(String name, EnumSet<ExpressionType> types) {
+        //Interned, so the names of the registry are the same instances as equal String constants
+        name = name.intern();
+        Integer id = ids.get(name);
+        if (id == null) {
+            ids.put(name, names.size());
+            names.add(name);
+            allowedTypes.add(Collections.unmodifiableSet(types));
+        } else {
+            allowedTypes.set(id, Collections.unmodifiableSet(types));
+        }
+    }
+
+    /**
+     * @return the id of the property, or -1 if it is not known
+     */
+    public int idOf(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @return the registry's instance of a known property name, otherwise name itself
+     */
+    public String canonical(String name) {
+        int id = idOf(name);
+        return id >= 0 ? names.get(id) : name;
+    }
+
+    public String getName(int id) {
+        return names.get(id);
+    }
+
+    public Set<ExpressionType> getAllowedTypes(int id) {
+        return allowedTypes.get(id);
+    }
+
+    public boolean allows(int id, ExpressionType type) {
+        return type != null && allowedTypes.get(id).contains(type);
+    }
+
+    public List<String> getNames() {
+        return Collections.unmodifiableList(names);
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
@@ -0,0 +1,91 @@
+package nl.han.ica.icss.bytecode;
+
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.ast.Operation;
+import nl.han.ica.icss.ast.VariableReference;
+import nl.han.ica.icss.transforms.Values;
+
+import java.util.Arrays;
+
+/**
+ * Compiles resolved expressions to {@link Program}s, in postfix order.
+ * Operations on two constants are computed while compiling, so only operations that read a
+ * variable are left for the {@link StackMachine}.
+ *
+ * The expression must have been resolved by the Resolver; a reference without a slot loads NONE.
+ * Operations other than add, subtract and multiply are rejected with an IllegalArgumentException.
+ */
+public class ExpressionCompiler {
+
+    //Reused between compilations, the Program gets copies of the used part
+    private int[] code = new int[32];
+    private int length;
+    private long[] constants = new long[16];
+    private int constantCount;
+    private int depth;
+    private int maxStack;
+
+    public Program compile(Expression expression) {
+        length = 0;
+        constantCount = 0;
+        depth = 0;
+        maxStack = 0;
+        emit(expression);
+        return new Program(Arrays.copyOf(code, length), Arrays.copyOf(constants, constantCount), maxStack);
+    }
+
+    //Returns true if the expression compiled to a single push, which is then the last instruction
+    private boolean emit(Expression expression) {
+        if (expression instanceof VariableReference) {
+            emit(Program.LOAD, ((VariableReference) expression).slot);
+            push();
+            return false;
+        } else if (expression instanceof Operation) {
+            Operation operation = (Operation) expression;
+            int opcode = Values.operator(operation);
+            int start = length;
+            int firstConstant = constantCount;
+            boolean constantLhs = emit(operation.lhs);
+            boolean constantRhs = emit(operation.rhs);
+            depth--;
+            if (constantLhs && constantRhs) {
+                long value = Values.apply(opcode, constants[firstConstant], constants[firstConstant + 1]);
+                length = start;
+                constantCount = firstConstant;
+                depth--;
+                emitConstant(value);
+                return true;
+            }
+            emit(opcode);
+            return false;
+        }
+        emitConstant(Values.of(expression));
+        return true;
+    }
+
+    private void emitConstant(long value) {
+        if (constantCount == constants.length) {
+            constants = Arrays.copyOf(constants, constantCount * 2);
+        }
+        constants[constantCount] = value;
+        emit(Program.PUSH, constantCount++);
+        push();
+    }
+
+    private void push() {
+        depth++;
+        maxStack = Math.max(maxStack, depth);
+    }
+
+    private void emit(int opcode) {
+        if (length == code.length) {
+            code = Arrays.copyOf(code, length * 2);
+        }
+        code[length++] = opcode;
+    }
+
+    private void emit(int opcode, int operand) {
+        emit(opcode);
+        emit(operand);
+    }
+}
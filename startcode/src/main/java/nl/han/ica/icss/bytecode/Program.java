@@ -0,0 +1,102 @@
+package nl.han.ica.icss.bytecode;
+
+import nl.han.ica.icss.transforms.Values;
+
+import java.util.Arrays;
+
+/**
+ * A compiled expression: a flat array of instructions for the {@link StackMachine} and the constants they push.
+ * Every instruction is an opcode, followed by an operand for {@link #PUSH} and {@link #LOAD}.
+ * The opcodes of the operations are the operators of {@link Values#apply}.
+ * Programs are immutable and may be shared between threads.
+ */
+public final class Program {
+
+    /** Pushes constants[operand] */
+    public static final int PUSH = 0;
+    /** Pushes the value of variable slot operand */
+    public static final int LOAD = 1;
+    /** Pops two values and pushes their sum */
+    public static final int ADD = Values.ADD;
+    /** Pops two values and pushes their difference */
+    public static final int SUBTRACT = Values.SUBTRACT;
+    /** Pops two values and pushes their product */
+    public static final int MULTIPLY = Values.MULTIPLY;
+
+    final int[] code;
+    final long[] constants;
+    final int maxStack;
+
+    Program(int[] code, long[] constants, int maxStack) {
+        this.code = code;
+        this.constants = constants;
+        this.maxStack = maxStack;
+    }
+
+    /**
+     * @return true if the program reads no variables, so it always gives the same value
+     */
+    public boolean isConstant() {
+        return code.length == 2 && code[0] == PUSH;
+    }
+
+    /**
+     * @return the highest variable slot the program reads, or -1 if it reads none
+     */
+    public int getMaxSlot() {
+        int max = -1;
+        for (int pc = 0; pc < code.length; pc++) {
+            if (code[pc] == LOAD) {
+                max = Math.max(max, code[++pc]);
+            } else if (code[pc] == PUSH) {
+                pc++;
+            }
+        }
+        return max;
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        for (int pc = 0; pc < code.length; pc++) {
+            if (result.length() > 0) {
+                result.append("; ");
+            }
+            switch (code[pc]) {
+                case PUSH:
+                    result.append("push ").append(Long.toHexString(constants[code[++pc]]));
+                    break;
+                case LOAD:
+                    result.append("load ").append(code[++pc]);
+                    break;
+                case ADD:
+                    result.append("add");
+                    break;
+                case SUBTRACT:
+                    result.append("subtract");
+                    break;
+                default:
+                    result.append("multiply");
+                    break;
+            }
+        }
+        return result.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Program program = (Program) o;
+        return Arrays.equals(code, program.code) && Arrays.equals(constants, program.constants);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(code) + Arrays.hashCode(constants);
+    }
+}
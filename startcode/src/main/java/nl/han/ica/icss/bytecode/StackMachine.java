@@ -0,0 +1,47 @@
+package nl.han.ica.icss.bytecode;
+
+import nl.han.ica.icss.transforms.Values;
+
+/**
+ * Runs {@link Program}s over a stack of packed values (see {@link Values}).
+ * Running allocates nothing once the stack has grown to the deepest program.
+ *
+ * A stack machine keeps its stack between runs, so each thread needs its own.
+ */
+public final class StackMachine {
+
+    private long[] stack = new long[16];
+
+    /**
+     * @param slots the packed value of every variable, by the slot the Resolver gave its assignment
+     * @return the packed value of the program, NONE for an invalid operation or a slot outside slots
+     */
+    public long run(Program program, long[] slots) {
+        if (program.maxStack > stack.length) {
+            stack = new long[program.maxStack];
+        }
+        long[] stack = this.stack;
+        int[] code = program.code;
+        long[] constants = program.constants;
+        int sp = 0;
+        int pc = 0;
+        while (pc < code.length) {
+            switch (code[pc++]) {
+                case Program.PUSH:
+                    stack[sp++] = constants[code[pc++]];
+                    break;
+                case Program.LOAD: {
+                    int slot = code[pc++];
+                    stack[sp++] = slot >= 0 && slot < slots.length ? slots[slot] : Values.NONE;
+                    break;
+                }
+                default:
+                    //An operator; Values.apply rejects unknown opcodes
+                    sp--;
+                    stack[sp - 1] = Values.apply(code[pc - 1], stack[sp - 1], stack[sp]);
+                    break;
+            }
+        }
+        return stack[0];
+    }
+}
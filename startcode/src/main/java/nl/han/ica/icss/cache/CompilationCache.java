@@ -0,0 +1,205 @@
+package nl.han.ica.icss.cache;
+
+import nl.han.ica.icss.Compilation;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.parser.MappedCharStream;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A persistent cache of compilation results, stored as one file per entry in a directory.
+ *
+ * Entries are keyed by the SHA-256 of the build fingerprint (see {@link Pipeline#getBuildFingerprint()})
+ * and the input bytes, so an entry is only reused for exactly the same input compiled by the same build. When the entries together
+ * exceed the size bound, the least recently used ones are deleted. Recency survives restarts
+ * through the last-modified time of the entry files.
+ *
+ * An entry holds the diagnostics and generated CSS but no AST, so {@link Compilation#getAST()}
+ * returns null for results served from the cache.
+ */
+public class CompilationCache {
+
+    private static final String ENTRY_EXTENSION = ".entry";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final String fingerprint;
+
+    //Entry name to entry size, least recently used first
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes = 0;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public CompilationCache(Path directory, long maxBytes) throws IOException {
+        this(directory, maxBytes, Pipeline.getBuildFingerprint());
+    }
+
+    /**
+     * @param fingerprint identifies the compiler in the keys; entries stored under another fingerprint are never hit
+     */
+    public CompilationCache(Path directory, long maxBytes, String fingerprint) throws IOException {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.fingerprint = fingerprint;
+        Files.createDirectories(directory);
+        loadEntries();
+    }
+
+    /**
+     * Returns the cached result for file, or compiles it with pipeline and caches the result.
+     */
+    public Compilation compile(Pipeline pipeline, Path file) throws IOException {
+        //The bytes that are hashed are the bytes that are compiled
+        MappedByteBuffer input = MappedCharStream.map(file);
+        String name = keyOf(input) + ENTRY_EXTENSION;
+        Compilation cached = read(name);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        Compilation compilation = pipeline.compile(input, file.toString());
+        write(name, compilation);
+        return compilation;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private void loadEntries() throws IOException {
+        List<Path> files;
+        try (Stream<Path> list = Files.list(directory)) {
+            files = list.filter(p -> p.getFileName().toString().endsWith(ENTRY_EXTENSION))
+                    .collect(Collectors.toList());
+        }
+        Map<Path, FileTime> lastUsed = new HashMap<>();
+        for (Path file : files) {
+            lastUsed.put(file, Files.getLastModifiedTime(file));
+        }
+        files.sort(Comparator.comparing(lastUsed::get));
+        for (Path file : files) {
+            long size = Files.size(file);
+            entries.put(file.getFileName().toString(), size);
+            totalBytes += size;
+        }
+        synchronized (this) {
+            evict();
+        }
+    }
+
+    private String keyOf(ByteBuffer input) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        digest.update(fingerprint.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(input.duplicate());
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    /*
+     Entry layout: a header line "<number of errors> <1 if there is css, else 0>",
+     one line per error, then the css up to the end of the file.
+     */
+    private Compilation read(String name) throws IOException {
+        synchronized (this) {
+            if (entries.get(name) == null) {
+                return null;
+            }
+        }
+        Path file = directory.resolve(name);
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String[] header = reader.readLine().split(" ");
+            int errorCount = Integer.parseInt(header[0]);
+            List<String> errors = new ArrayList<>(errorCount);
+            for (int i = 0; i < errorCount; i++) {
+                errors.add(reader.readLine());
+            }
+            String css = null;
+            if (header[1].equals("1")) {
+                StringWriter content = new StringWriter();
+                reader.transferTo(content);
+                css = content.toString();
+            }
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return new Compilation(null, errors, css);
+        } catch (NoSuchFileException e) {
+            //Evicted by another thread or process in the meantime
+            synchronized (this) {
+                Long size = entries.remove(name);
+                if (size != null) {
+                    totalBytes -= size;
+                }
+            }
+            return null;
+        } catch (RuntimeException e) {
+            //A damaged entry is a miss, it is overwritten with a fresh result
+            return null;
+        }
+    }
+
+    private void write(String name, Compilation compilation) throws IOException {
+        Path temporary = Files.createTempFile(directory, name, ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            List<String> errors = compilation.getErrors();
+            writer.write(errors.size() + " " + (compilation.getCss() != null ? "1" : "0") + "\n");
+            for (String error : errors) {
+                writer.write(error.replace('\n', ' '));
+                writer.write("\n");
+            }
+            if (compilation.getCss() != null) {
+                writer.write(compilation.getCss());
+            }
+        }
+        long size = Files.size(temporary);
+        Files.move(temporary, directory.resolve(name), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        synchronized (this) {
+            Long previous = entries.put(name, size);
+            totalBytes += size - (previous != null ? previous : 0);
+            evict();
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> leastRecentlyUsed = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && leastRecentlyUsed.hasNext()) {
+            Map.Entry<String, Long> entry = leastRecentlyUsed.next();
+            try {
+                Files.deleteIfExists(directory.resolve(entry.getKey()));
+            } catch (IOException e) {
+                //Try again on the next eviction
+                continue;
+            }
+            totalBytes -= entry.getValue();
+            leastRecentlyUsed.remove();
+        }
+    }
+}
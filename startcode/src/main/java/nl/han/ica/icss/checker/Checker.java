@@ -6,91 +6,128 @@ import nl.han.ica.icss.ast.operations.AddOperation;
 import nl.han.ica.icss.ast.operations.MultiplyOperation;
 import nl.han.ica.icss.ast.operations.SubtractOperation;
 import nl.han.ica.icss.ast.types.ExpressionType;
+import nl.han.ica.icss.ast.types.PropertyRegistry;
+import nl.han.ica.icss.events.StyleruleEvent;
 
-import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static nl.han.ica.icss.ast.types.ExpressionType.*;
 
 
 public class Checker {
 
-    private LinkedList<HashMap<String, ExpressionType>> variableTypes;
+    private final PropertyRegistry properties;
+    //Types of the globals by slot, and of the variables of the current stylerule by slot - localBase.
+    //The Resolver hands out the slots of a stylerule one after another, in the order they are checked
+    private ExpressionType[] globalTypes = new ExpressionType[0];
+    private int globalSlots;
+    private ExpressionType[] localTypes = new ExpressionType[16];
+    private int localBase = -1;
+    private boolean checkingGlobals;
+    //Number of variable lookups so far, reported per stylerule to JFR
+    private long lookups;
+
+    public Checker() {
+        this(PropertyRegistry.getDefault());
+    }
+
+    /**
+     * @param properties the properties that may be declared, with the types of their values
+     */
+    public Checker(PropertyRegistry properties) {
+        this.properties = properties;
+    }
 
     public void check(AST ast) {
-        variableTypes = new LinkedList<>();
+        if (ast.slots < 0) {
+            new Resolver().resolve(ast);
+        }
         checkStylesheet(ast.root);
     }
 
+    /**
+     * Checks the global variable assignments of a stylesheet. Their types are kept
+     * for the following {@link #checkStylerule} calls.
+     * The assignments must have been resolved with {@link Resolver#resolveGlobals}.
+     */
+    public void checkGlobals(List<VariableAssignment> globals) {
+        globalTypes = new ExpressionType[16];
+        globalSlots = 0;
+        checkingGlobals = true;
+        for (VariableAssignment variableAssignment : globals) {
+            checkVariableAssignment(variableAssignment);
+        }
+        checkingGlobals = false;
+    }
+
+    /**
+     * @return a copy of the types of the globals of the last {@link #checkGlobals} call, by slot
+     */
+    public ExpressionType[] getGlobalTypes() {
+        return Arrays.copyOf(globalTypes, globalSlots);
+    }
+
+    /**
+     * Makes the globals another checker found known to this one, instead of checking them again.
+     * @param globalTypes the result of {@link #getGlobalTypes()}; it is only read, so checkers on other threads may share it
+     */
+    public void setGlobalTypes(ExpressionType[] globalTypes) {
+        this.globalTypes = globalTypes;
+        globalSlots = globalTypes.length;
+    }
+
+    /**
+     * Checks a single stylerule against the globals of the last {@link #checkGlobals} call.
+     * The stylerule must have been resolved with {@link Resolver#resolveStylerule}.
+     */
+    public void checkStylerule(Stylerule styleRule) {
+        StyleruleEvent event = new StyleruleEvent();
+        event.begin();
+        long lookupsBefore = lookups;
+        localBase = -1;
+        checkStyleRule(styleRule);
+        event.commit(StyleruleEvent.CHECK, styleRule, lookups - lookupsBefore, 0);
+    }
+
     private void checkStylesheet(Stylesheet sheet) {
-        HashMap<String, ExpressionType> hashMap = new HashMap<>();
+        List<VariableAssignment> globals = new ArrayList<>();
         for (ASTNode child : sheet.getChildren()) {
             if (child instanceof VariableAssignment) {
-                checkVariableAssignment((VariableAssignment) child, hashMap);
+                globals.add((VariableAssignment) child);
             }
         }
-        variableTypes.add(hashMap);
+        checkGlobals(globals);
         for (ASTNode child : sheet.getChildren()) {
             if (child instanceof Stylerule) {
-                checkStyleRule((Stylerule) child);
+                checkStylerule((Stylerule) child);
             }
         }
     }
 
     private void checkStyleRule(Stylerule styleRule) {
-        HashMap<String, ExpressionType> hashMap = new HashMap<>();
-        for (ASTNode child : styleRule.getChildren()) {
-            if (child instanceof VariableAssignment) {
-                checkVariableAssignment((VariableAssignment) child, hashMap);
-            }
-        }
-        variableTypes.add(hashMap);
-        for (ASTNode child : styleRule.getChildren()) {
-            if (child instanceof Declaration) {
-                checkDeclaration((Declaration) child);
-            } else if (child instanceof IfClause) {
-                checkIfClause((IfClause) child);
-                variableTypes.removeLast();
-            }
-        }
-        variableTypes.removeLast();
+        checkBlock(styleRule.body);
     }
 
     private void checkIfClause(IfClause ifClause) {
-        HashMap<String, ExpressionType> hashMap = new HashMap<>();
         if ((checkVariableValue((VariableReference) ifClause.conditionalExpression)) != BOOL) {
             ifClause.setError("conditionalExpression of the ifClause has invalid type");
         }
-        for (ASTNode statement : ifClause.body) {
-            if (statement instanceof VariableAssignment) {
-                checkVariableAssignment((VariableAssignment) statement, hashMap);
-            }
-        }
-        variableTypes.add(hashMap);
-        for (ASTNode statement : ifClause.body) {
-            if (statement instanceof Declaration) {
-                checkDeclaration((Declaration) statement);
-            } else if (statement instanceof IfClause) {
-                checkIfClause((IfClause) statement);
-                variableTypes.removeLast();
-            }
-        }
+        checkBlock(ifClause.body);
         if (ifClause.elseClause != null) {
-            checkElseClause(ifClause.elseClause);
-            variableTypes.removeLast();
+            checkBlock(ifClause.elseClause.body);
         }
-
     }
 
-    private void checkElseClause(ElseClause elseClause) {
-        HashMap<String, ExpressionType> hashMap = new HashMap<>();
-        for (ASTNode statement : elseClause.body) {
+    //Assignments are checked before the declarations, matching the slots the Resolver handed out
+    private void checkBlock(List<ASTNode> body) {
+        for (ASTNode statement : body) {
             if (statement instanceof VariableAssignment) {
-                checkVariableAssignment((VariableAssignment) statement, hashMap);
+                checkVariableAssignment((VariableAssignment) statement);
             }
         }
-        variableTypes.add(hashMap);
-        for (ASTNode statement : elseClause.body) {
+        for (ASTNode statement : body) {
             if (statement instanceof Declaration) {
                 checkDeclaration((Declaration) statement);
             } else if (statement instanceof IfClause) {
@@ -100,33 +137,59 @@ public class Checker {
     }
 
     private void checkDeclaration(Declaration declaration) {
+        PropertyName property = declaration.property;
+        int id = properties == PropertyRegistry.getDefault() ? property.id : properties.idOf(property.name);
+        if (id < 0) {
+            property.setError("Property '" + property.name + "' is not a known property");
+        } else if (declaration.expression instanceof Operation) {
+            Operation operation = (Operation) declaration.expression;
+            checkOperation(operation);
+            //Errors inside the operation were reported by checkOperation or the Resolver already
+            if (!hasError(operation) && !properties.allows(id, getOperationType(operation))) {
+                declaration.setError("Property '" + property.name + "' has invalid type");
+            }
+        } else if (!declaration.expression.hasError()) {
+            //An expression with an error is an undefined variable, which the Resolver reported
+            if (!properties.allows(id, getValueType(declaration.expression))) {
+                declaration.setError("Property '" + property.name + "' has invalid type");
+            }
+        }
+    }
 
-        if (declaration.expression instanceof Operation) {
-            checkOperation((Operation) declaration.expression);
-        } else {
-            switch (declaration.property.name) {
-                case "width":
-                case "height":
-                    if (!checkMeasurement(declaration.expression)) {
-                        declaration.expression.setError("Property '" + declaration.property.name + "' has invalid type");
-                    }
-                    break;
-                case "color":
-                case "background-color":
-                    if (!checkColor(declaration.expression)) {
-                        declaration.expression.setError("Property '" + declaration.property.name + "' has invalid type");
-                    }
-                    break;
+    private ExpressionType getValueType(Expression expression) {
+        if (expression instanceof VariableReference) {
+            return checkVariableValue((VariableReference) expression);
+        } else if (expression instanceof Operation) {
+            return getOperationType((Operation) expression);
+        }
+        return GetExpressionType(expression);
+    }
+
+    //The type of the value of an operation as the transforms compute it, null if they cannot compute it
+    private ExpressionType getOperationType(Operation operation) {
+        ExpressionType lhs = getValueType(operation.lhs);
+        ExpressionType rhs = getValueType(operation.rhs);
+        if (operation instanceof MultiplyOperation) {
+            if (lhs == SCALAR && isMeasurement(rhs)) {
+                return rhs;
+            } else if (rhs == SCALAR && isMeasurement(lhs)) {
+                return lhs;
             }
+            return null;
         }
+        return lhs == rhs && isMeasurement(lhs) ? lhs : null;
     }
 
-    private boolean checkColor(Expression expression) {
-        if (expression instanceof Literal) {
-            return expression instanceof ColorLiteral;
-        } else if (expression instanceof VariableReference) {
-            return (checkVariableValue((VariableReference) expression)) == COLOR;
-        } else return false;
+    private static boolean isMeasurement(ExpressionType type) {
+        return type == PIXEL || type == PERCENTAGE;
+    }
+
+    private static boolean hasError(Expression expression) {
+        if (expression instanceof Operation) {
+            Operation operation = (Operation) expression;
+            return operation.hasError() || hasError(operation.lhs) || hasError(operation.rhs);
+        }
+        return expression.hasError();
     }
 
     private boolean checkMeasurement(Expression expression) {
@@ -140,40 +203,62 @@ public class Checker {
     }
 
     private ExpressionType checkVariableValue(VariableReference variableReference) {
-        ExpressionType type = null;
-        for (int i = variableTypes.size(); i >= 1; i--) {
-            if (variableTypes.get(i - 1).containsKey(variableReference.name)) {
-                type = variableTypes.get(i - 1).get(variableReference.name);
-                break;
-            }
+        lookups++;
+        int slot = variableReference.slot;
+        if (slot >= 0 && slot < globalSlots) {
+            return globalTypes[slot];
         }
-        return type;
+        int index = slot - localBase;
+        return localBase < 0 || index < 0 || index >= localTypes.length ? null : localTypes[index];
     }
 
 
-    private void checkVariableAssignment(VariableAssignment variableAssignment, HashMap<String, ExpressionType> hashMap) {
+    private void checkVariableAssignment(VariableAssignment variableAssignment) {
         if (variableAssignment.expression instanceof Literal) {
-            addVariable(variableAssignment, hashMap);
+            addVariable(variableAssignment);
         } else if (variableAssignment.expression instanceof Operation) {
             checkOperation((Operation) variableAssignment.expression);
-            hashMap.put(variableAssignment.name.name, GetExpressionType(variableAssignment.expression));
-            variableTypes.add(hashMap);
+            ExpressionType type = getOperationType((Operation) variableAssignment.expression);
+            defineVariable(variableAssignment, type != null ? type : UNDEFINED);
+        } else if (variableAssignment.expression instanceof VariableReference) {
+            ExpressionType type = checkVariableValue((VariableReference) variableAssignment.expression);
+            defineVariable(variableAssignment, type != null ? type : UNDEFINED);
+        }
+    }
+
+    private void defineVariable(VariableAssignment variableAssignment, ExpressionType type) {
+        int slot = variableAssignment.name.slot;
+        if (checkingGlobals) {
+            if (slot >= globalTypes.length) {
+                globalTypes = Arrays.copyOf(globalTypes, Math.max(slot + 1, globalTypes.length * 2));
+            }
+            globalTypes[slot] = type;
+            globalSlots = Math.max(globalSlots, slot + 1);
+            return;
+        }
+        if (localBase < 0) {
+            localBase = slot;
+        }
+        int index = slot - localBase;
+        if (index >= localTypes.length) {
+            localTypes = Arrays.copyOf(localTypes, Math.max(index + 1, localTypes.length * 2));
         }
+        localTypes[index] = type;
     }
 
-    private void addVariable(VariableAssignment variableAssignment, HashMap<String, ExpressionType> hashMap) {
+    private void addVariable(VariableAssignment variableAssignment) {
         if (variableAssignment.expression instanceof BoolLiteral) {
-            hashMap.put(variableAssignment.name.name, BOOL);
+            defineVariable(variableAssignment, BOOL);
         } else if (variableAssignment.expression instanceof ColorLiteral) {
-            hashMap.put(variableAssignment.name.name, COLOR);
+            defineVariable(variableAssignment, COLOR);
         } else if (variableAssignment.expression instanceof PercentageLiteral) {
-            hashMap.put(variableAssignment.name.name, PERCENTAGE);
+            defineVariable(variableAssignment, PERCENTAGE);
         } else if (variableAssignment.expression instanceof PixelLiteral) {
-            hashMap.put(variableAssignment.name.name, PIXEL);
+            defineVariable(variableAssignment, PIXEL);
         } else if (variableAssignment.expression instanceof ScalarLiteral) {
-            hashMap.put(variableAssignment.name.name, SCALAR);
+            defineVariable(variableAssignment, SCALAR);
         } else {
-            hashMap.put(variableAssignment.name.name, UNDEFINED);
+            defineVariable(variableAssignment, UNDEFINED);
         }
     }
 
@@ -0,0 +1,118 @@
+package nl.han.ica.icss.checker;
+
+import nl.han.ica.datastructures.HANSymbolTable;
+import nl.han.ica.datastructures.IHANSymbolTable;
+import nl.han.ica.icss.ast.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binds every {@link VariableReference} to the slot of the assignment it reads, so the
+ * checker and the transforms can keep variables in an array instead of looking them up by name.
+ *
+ * Every assignment gets its own slot. Scoping follows the evaluation order: a stylerule, if body
+ * and else body each form a scope, assignments see the assignments before them, and declarations
+ * see the last assignment of a name in their block. References to undefined names get slot -1
+ * and an error.
+ */
+public class Resolver {
+
+    private IHANSymbolTable<Integer> slots;
+    private int slotCount;
+
+    public void resolve(AST ast) {
+        List<VariableAssignment> globals = new ArrayList<>();
+        for (ASTNode child : ast.root.getChildren()) {
+            if (child instanceof VariableAssignment) {
+                globals.add((VariableAssignment) child);
+            }
+        }
+        resolveGlobals(globals);
+        for (ASTNode child : ast.root.getChildren()) {
+            if (child instanceof Stylerule) {
+                resolveStylerule((Stylerule) child);
+            }
+        }
+        ast.slots = slotCount;
+    }
+
+    /**
+     * Resolves the global variable assignments of a stylesheet and starts numbering slots from 0.
+     * The globals stay visible to the following {@link #resolveStylerule} calls.
+     */
+    public void resolveGlobals(List<VariableAssignment> globals) {
+        slots = new HANSymbolTable<>();
+        slotCount = 0;
+        slots.enterScope();
+        for (VariableAssignment variableAssignment : globals) {
+            resolveVariableAssignment(variableAssignment);
+        }
+    }
+
+    /**
+     * Resolves a single stylerule against the globals of the last {@link #resolveGlobals} call.
+     */
+    public void resolveStylerule(Stylerule stylerule) {
+        int depth = slots.getDepth();
+        resolveBlock(stylerule.body);
+        while (slots.getDepth() > depth) {
+            slots.exitScope();
+        }
+    }
+
+    /**
+     * @return the number of slots handed out since the last {@link #resolveGlobals} call
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    private void resolveBlock(List<ASTNode> body) {
+        slots.enterScope();
+        for (ASTNode statement : body) {
+            if (statement instanceof VariableAssignment) {
+                resolveVariableAssignment((VariableAssignment) statement);
+            }
+        }
+        for (ASTNode statement : body) {
+            if (statement instanceof Declaration) {
+                resolveExpression(((Declaration) statement).expression);
+            } else if (statement instanceof IfClause) {
+                resolveIfClause((IfClause) statement);
+            }
+        }
+        slots.exitScope();
+    }
+
+    private void resolveIfClause(IfClause ifClause) {
+        resolveExpression(ifClause.conditionalExpression);
+        resolveBlock(ifClause.body);
+        if (ifClause.elseClause != null) {
+            resolveBlock(ifClause.elseClause.body);
+        }
+    }
+
+    private void resolveVariableAssignment(VariableAssignment variableAssignment) {
+        //The value is resolved first, so `X := X + 1px` reads the X of an outer scope
+        resolveExpression(variableAssignment.expression);
+        variableAssignment.name.slot = slotCount++;
+        slots.define(variableAssignment.name.name, variableAssignment.name.slot);
+    }
+
+    private void resolveExpression(Expression expression) {
+        if (expression instanceof VariableReference) {
+            VariableReference variableReference = (VariableReference) expression;
+            Integer slot = slots.lookup(variableReference.name);
+            if (slot != null) {
+                variableReference.slot = slot;
+            } else {
+                variableReference.slot = -1;
+                variableReference.setError("Variable '" + variableReference.name + "' is not defined");
+            }
+        } else if (expression instanceof Operation) {
+            resolveExpression(((Operation) expression).lhs);
+            resolveExpression(((Operation) expression).rhs);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package nl.han.ica.icss.cli;
+
+import nl.han.ica.icss.Compilation;
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.PipelineMetrics;
+import nl.han.ica.icss.cache.CompilationCache;
+import nl.han.ica.icss.parser.ParseStatistics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Headless driver that compiles every .icss file below a directory to .css.
+ * Files are compiled independently on a work-stealing pool.
+ *
+ * Usage: BatchCompiler [-t threads] [-c cacheDir [-m cacheMegabytes]] [-s] [-p] inputDir [outputDir]
+ *
+ * Without an output directory the .css files are written next to their sources,
+ * otherwise the directory structure of the input is mirrored under outputDir.
+ * With a cache directory, files compiled before by the same compiler version are not compiled again.
+ * With -s the time and allocations of each stage are summed over all compiled files and printed.
+ * With -p the stylerules within each file are compiled in parallel too, which helps for a few large files.
+ */
+public class BatchCompiler {
+
+    private static final String INPUT_EXTENSION = ".icss";
+    private static final String OUTPUT_EXTENSION = ".css";
+    private static final long DEFAULT_CACHE_MEGABYTES = 256;
+
+    private final Path inputRoot;
+    private final Path outputRoot;
+    private final int parallelism;
+    private final CompilationCache cache;
+    private final Pipeline pipeline = new Pipeline();
+
+    public BatchCompiler(Path inputRoot, Path outputRoot, int parallelism) {
+        this(inputRoot, outputRoot, parallelism, null);
+    }
+
+    public BatchCompiler(Path inputRoot, Path outputRoot, int parallelism, CompilationCache cache) {
+        this.inputRoot = inputRoot;
+        this.outputRoot = outputRoot;
+        this.parallelism = parallelism;
+        this.cache = cache;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int parallelism = Runtime.getRuntime().availableProcessors();
+        Path cacheDirectory = null;
+        long cacheMegabytes = DEFAULT_CACHE_MEGABYTES;
+        boolean stageMetrics = false;
+        boolean parallelRules = false;
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-t") && i + 1 < args.length) {
+                parallelism = Integer.parseInt(args[++i]);
+            } else if (args[i].equals("-c") && i + 1 < args.length) {
+                cacheDirectory = Paths.get(args[++i]);
+            } else if (args[i].equals("-m") && i + 1 < args.length) {
+                cacheMegabytes = Long.parseLong(args[++i]);
+            } else if (args[i].equals("-s")) {
+                stageMetrics = true;
+            } else if (args[i].equals("-p")) {
+                parallelRules = true;
+            } else {
+                paths.add(args[i]);
+            }
+        }
+        if (paths.isEmpty() || paths.size() > 2) {
+            System.err.println("Usage: BatchCompiler [-t threads] [-c cacheDir [-m cacheMegabytes]] [-s] [-p] inputDir [outputDir]");
+            System.exit(2);
+        }
+        Path inputRoot = Paths.get(paths.get(0));
+        Path outputRoot = paths.size() == 2 ? Paths.get(paths.get(1)) : null;
+
+        CompilationCache cache = cacheDirectory != null
+                ? new CompilationCache(cacheDirectory, cacheMegabytes * 1024 * 1024)
+                : null;
+
+        BatchCompiler compiler = new BatchCompiler(inputRoot, outputRoot, parallelism, cache);
+        compiler.pipeline.setRecordMetrics(stageMetrics);
+        compiler.pipeline.setParallelRules(parallelRules);
+        Summary summary = compiler.run();
+        System.out.println(summary);
+        if (stageMetrics) {
+            System.out.print(summary.stages);
+        }
+        System.out.println(ParseStatistics.summary());
+        if (cache != null) {
+            System.out.println("Cache hits: " + cache.getHits() + ", misses: " + cache.getMisses());
+        }
+        System.exit(summary.failed == 0 ? 0 : 1);
+    }
+
+    public Summary run() throws IOException {
+        List<Path> sources;
+        try (Stream<Path> files = Files.walk(inputRoot)) {
+            sources = files.filter(p -> Files.isRegularFile(p) && p.toString().endsWith(INPUT_EXTENSION))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+
+        long start = System.nanoTime();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        List<ForkJoinTask<FileResult>> tasks = new ArrayList<>(sources.size());
+        try {
+            for (Path source : sources) {
+                tasks.add(pool.submit(() -> compile(source)));
+            }
+            Summary summary = new Summary();
+            for (ForkJoinTask<FileResult> task : tasks) {
+                FileResult result = task.join();
+                summary.add(result);
+                for (String error : result.errors) {
+                    System.err.println(inputRoot.relativize(result.source) + ": " + error);
+                }
+            }
+            summary.elapsedNanos = System.nanoTime() - start;
+            return summary;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private FileResult compile(Path source) {
+        FileResult result = new FileResult(source);
+        try {
+            result.bytes = Files.size(source);
+
+            Compilation compilation = cache != null
+                    ? cache.compile(pipeline, source)
+                    : pipeline.compile(source);
+            if (compilation.isSuccessful()) {
+                Path target = targetFor(source);
+                if (target.getParent() != null) {
+                    Files.createDirectories(target.getParent());
+                }
+                Files.write(target, compilation.getCss().getBytes(StandardCharsets.UTF_8));
+            }
+            result.errors.addAll(compilation.getErrors());
+            result.metrics = compilation.getMetrics();
+        } catch (IOException e) {
+            result.errors.add(e.toString());
+        }
+        return result;
+    }
+
+    private Path targetFor(Path source) {
+        String name = source.getFileName().toString();
+        String cssName = name.substring(0, name.length() - INPUT_EXTENSION.length()) + OUTPUT_EXTENSION;
+        if (outputRoot == null) {
+            return source.resolveSibling(cssName);
+        }
+        return outputRoot.resolve(inputRoot.relativize(source)).resolveSibling(cssName);
+    }
+
+    private static class FileResult {
+        final Path source;
+        final List<String> errors = new ArrayList<>();
+        long bytes;
+        PipelineMetrics metrics;
+
+        FileResult(Path source) {
+            this.source = source;
+        }
+    }
+
+    public static class Summary {
+        public int compiled;
+        public int failed;
+        public long bytes;
+        public long elapsedNanos;
+        //Summed over all compiled files, empty unless the pipeline records metrics
+        public PipelineMetrics stages = PipelineMetrics.total(List.of());
+
+        private void add(FileResult result) {
+            if (result.errors.isEmpty()) {
+                compiled++;
+            } else {
+                failed++;
+            }
+            bytes += result.bytes;
+            if (result.metrics != null) {
+                stages = PipelineMetrics.total(List.of(stages, result.metrics));
+            }
+        }
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(elapsedNanos, 1) / 1e9;
+            int files = compiled + failed;
+            return String.format("%d files (%d failed), %.1f MB in %.3f s: %.1f files/s, %.2f MB/s",
+                    files, failed, bytes / 1e6, seconds, files / seconds, bytes / 1e6 / seconds);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package nl.han.ica.icss.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event for one stage of {@link nl.han.ica.icss.Pipeline#compile(String)}.
+ * Stage names are those of {@link nl.han.ica.icss.PipelineMetrics}.
+ */
+@Name("nl.han.ica.icss.Phase")
+@Label("ICSS Phase")
+@Category("ICSS")
+@Description("A stage of an ICSS compilation")
+@StackTrace(false)
+public class PhaseEvent extends Event {
+
+    @Label("Phase")
+    public String phase;
+}
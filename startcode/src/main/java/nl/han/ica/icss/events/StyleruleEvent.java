@@ -0,0 +1,58 @@
+package nl.han.ica.icss.events;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import nl.han.ica.icss.ast.Stylerule;
+
+/**
+ * JFR event for the processing of one stylerule by the checker, a transform or the generator.
+ * Create one before processing the rule, call begin() and finish with {@link #commit(String, Stylerule, long, long)}.
+ * There is one event per rule per phase, so the event is disabled unless a recording enables it.
+ */
+@Name("nl.han.ica.icss.Stylerule")
+@Label("ICSS Stylerule")
+@Category("ICSS")
+@Description("Processing of a single stylerule")
+@StackTrace(false)
+@Enabled(false)
+public class StyleruleEvent extends Event {
+
+    public static final String CHECK = "check";
+    public static final String FOLD = "fold";
+    public static final String EVALUATE = "evaluate";
+    public static final String REMOVE_IF = "removeIf";
+    public static final String EVALUATE_AND_PRUNE = "evaluateAndPrune";
+    public static final String GENERATE = "generate";
+
+    @Label("Phase")
+    public String phase;
+
+    @Label("Selector")
+    public String selector;
+
+    @Label("Variable Lookups")
+    public long variableLookups;
+
+    @Label("Nodes Created")
+    public long nodesCreated;
+
+    /**
+     * Ends the event and commits it if it is enabled and above the recording's threshold.
+     * The selector is only turned into a String in that case.
+     */
+    public void commit(String phase, Stylerule stylerule, long variableLookups, long nodesCreated) {
+        end();
+        if (shouldCommit()) {
+            this.phase = phase;
+            this.selector = stylerule.selectors.isEmpty() ? "" : stylerule.selectors.get(0).toString();
+            this.variableLookups = variableLookups;
+            this.nodesCreated = nodesCreated;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package nl.han.ica.icss.generator;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An Appendable that encodes characters as UTF-8 into a fixed byte buffer and writes it to a channel
+ * whenever it fills up. The buffers are allocated once, so one instance can be pointed at many
+ * channels in turn with {@link #setChannel}.
+ */
+public class ChannelOutput implements Appendable, Flushable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private final CharBuffer chars;
+    private final ByteBuffer bytes;
+    private WritableByteChannel channel;
+
+    public ChannelOutput(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ChannelOutput(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        chars = CharBuffer.allocate(bufferSize);
+        bytes = ByteBuffer.allocate((int) Math.ceil(bufferSize * (double) encoder.maxBytesPerChar()));
+    }
+
+    /**
+     * Continues with another channel. Call {@link #flush()} first to complete the previous one.
+     */
+    public ChannelOutput setChannel(WritableByteChannel channel) {
+        this.channel = channel;
+        return this;
+    }
+
+    @Override
+    public Appendable append(CharSequence csq) throws IOException {
+        return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Appendable append(CharSequence csq, int start, int end) throws IOException {
+        while (start < end) {
+            if (!chars.hasRemaining()) {
+                encode(false);
+            }
+            int count = Math.min(chars.remaining(), end - start);
+            if (csq instanceof String) {
+                chars.put((String) csq, start, start + count);
+            } else {
+                for (int i = start; i < start + count; i++) {
+                    chars.put(csq.charAt(i));
+                }
+            }
+            start += count;
+        }
+        return this;
+    }
+
+    @Override
+    public Appendable append(char c) throws IOException {
+        if (!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put(c);
+        return this;
+    }
+
+    /**
+     * Writes everything appended so far to the channel and ends the current document,
+     * so the next append starts encoding afresh.
+     */
+    @Override
+    public void flush() throws IOException {
+        encode(true);
+        encoder.flush(bytes);
+        write();
+        encoder.reset();
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, bytes, endOfInput);
+            if (result.isError()) {
+                result.throwException();
+            }
+            write();
+        } while (result.isOverflow());
+        chars.compact();
+    }
+
+    private void write() throws IOException {
+        bytes.flip();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+}
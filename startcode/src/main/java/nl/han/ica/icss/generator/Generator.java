@@ -3,57 +3,126 @@ package nl.han.ica.icss.generator;
 
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.*;
-import nl.han.ica.icss.ast.operations.AddOperation;
-import nl.han.ica.icss.ast.operations.MultiplyOperation;
-import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.events.StyleruleEvent;
 
-import static nl.han.ica.icss.ast.types.ExpressionType.*;
-import static nl.han.ica.icss.ast.types.ExpressionType.UNDEFINED;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.WritableByteChannel;
 
 public class Generator {
 
+    //Created on the first write to a channel and reused for every later one
+    private ChannelOutput channelOutput;
+
     public String generate(AST ast) {
-        return generateStylesheet(ast.root);
+        StringBuilder s = new StringBuilder();
+        try {
+            generate(ast, s);
+        } catch (IOException e) {
+            //A StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return s.toString();
     }
 
-    private String generateStylesheet(Stylesheet stylesheet) {
-        StringBuilder s = new StringBuilder();
-        for (ASTNode child : stylesheet.getChildren()) {
-            s.append(generateStylerule((Stylerule) child));
+    /**
+     * Writes the CSS of a transformed AST straight into out, without building intermediate strings.
+     */
+    public void generate(AST ast, Appendable out) throws IOException {
+        generateStylesheet(ast.root, out);
+    }
+
+    /**
+     * Writes the CSS of a transformed AST to a channel, encoded as UTF-8.
+     * The encode buffers are kept by this generator for its next call.
+     */
+    public void generate(AST ast, WritableByteChannel channel) throws IOException {
+        if (channelOutput == null) {
+            channelOutput = new ChannelOutput(channel);
+        } else {
+            channelOutput.setChannel(channel);
         }
-        return s + "\n";
+        generate(ast, channelOutput);
+        channelOutput.flush();
     }
 
-    private String generateStylerule(Stylerule stylerule) {
+    /**
+     * Writes the CSS of a single, transformed stylerule into out.
+     */
+    public void generate(Stylerule stylerule, Appendable out) throws IOException {
+        generateStylerule(stylerule, out);
+    }
+
+    private void generateStylesheet(Stylesheet stylesheet, Appendable out) throws IOException {
+        for (ASTNode child : stylesheet.getChildren()) {
+            generateStylerule((Stylerule) child, out);
+        }
+        out.append('\n');
+    }
 
-        StringBuilder s = new StringBuilder(stylerule.selectors.get(0).toString() + " {\n");
+    private void generateStylerule(Stylerule stylerule, Appendable out) throws IOException {
+        StyleruleEvent event = new StyleruleEvent();
+        event.begin();
+        out.append(stylerule.selectors.get(0).toString()).append(" {\n");
         for (ASTNode child : stylerule.body) {
-            s.append("\t").append(generateDeclaration((Declaration) child));
+            out.append('\t');
+            generateDeclaration((Declaration) child, out);
         }
-        s.append("}\n");
-        return s.toString();
+        out.append("}\n");
+        event.commit(StyleruleEvent.GENERATE, stylerule, 0, 0);
     }
 
 
-    private String generateDeclaration(Declaration declaration) {
-        return declaration.property.name + ": " + generateExpression(declaration.expression) + ";\n";
+    /**
+     * Writes a single declaration of an evaluated value into out, without indentation.
+     */
+    public void generate(String property, Expression value, Appendable out) throws IOException {
+        out.append(property).append(": ");
+        generateExpression(value, out);
+        out.append(";\n");
     }
 
-    private String generateExpression(Expression expression) {
+    private void generateDeclaration(Declaration declaration, Appendable out) throws IOException {
+        generate(declaration.property.name, declaration.expression, out);
+    }
+
+    private void generateExpression(Expression expression, Appendable out) throws IOException {
         if (expression instanceof BoolLiteral) {
-            return Boolean.toString(((BoolLiteral) expression).value);
+            out.append(((BoolLiteral) expression).value ? "true" : "false");
         } else if (expression instanceof ColorLiteral) {
-            return ((ColorLiteral) expression).value;
+            out.append(((ColorLiteral) expression).value);
         } else if (expression instanceof PercentageLiteral) {
-            return ((PercentageLiteral) expression).value + "%";
+            appendInt(((PercentageLiteral) expression).value, out);
+            out.append('%');
         } else if (expression instanceof PixelLiteral) {
-            return ((PixelLiteral) expression).value + "px";
+            appendInt(((PixelLiteral) expression).value, out);
+            out.append("px");
         } else if (expression instanceof ScalarLiteral) {
-            return Integer.toString(((ScalarLiteral) expression).value);
+            appendInt(((ScalarLiteral) expression).value, out);
         } else if (expression instanceof VariableReference) {
-            return ((VariableReference) expression).name;
+            out.append(((VariableReference) expression).name);
+        }
+    }
+
+    //Appends the decimal digits of value without creating a String for it
+    private static void appendInt(int value, Appendable out) throws IOException {
+        if (out instanceof StringBuilder) {
+            ((StringBuilder) out).append(value);
+            return;
+        }
+        long remaining = value;
+        if (remaining < 0) {
+            out.append('-');
+            remaining = -remaining;
+        }
+        long divisor = 1;
+        while (divisor * 10 <= remaining) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            out.append((char) ('0' + remaining / divisor));
+            remaining %= divisor;
         }
-        return "";
     }
 
 }
@@ -0,0 +1,185 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.datastructures.HANStack;
+import nl.han.ica.datastructures.IHANStack;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.ast.selectors.ClassSelector;
+import nl.han.ica.icss.ast.selectors.IdSelector;
+import nl.han.ica.icss.ast.selectors.TagSelector;
+
+/**
+ * This class builds the ICSS Abstract Syntax Tree while Antlr is parsing, so no parse tree is needed.
+ * Register it with {@link ICSSParser#addParseListener} and turn off {@link ICSSParser#setBuildParseTree}.
+ *
+ * Without a parse tree the rule contexts have no child contexts. Names and literal values are read
+ * from the start token of their rule, and expressions are collected bottom-up on a stack as their
+ * rules are exited.
+ */
+public class ASTBuilder extends ICSSBaseListener {
+
+    //Accumulator attributes:
+    private AST ast;
+
+    //Nodes that are still receiving children (stylesheet, stylerules, if and else clauses)
+    private IHANStack<ASTNode> currentContainer;
+
+    //Completed expressions (and variable names) waiting for the node that uses them
+    private IHANStack<Expression> expressions;
+
+    //Every name in the stylesheet, so repeated names share one String
+    private NameTable names;
+
+    public ASTBuilder() {
+        ast = new AST();
+        currentContainer = new HANStack<>();
+        expressions = new HANStack<>();
+        names = new NameTable();
+    }
+
+    public AST getAST() {
+        return ast;
+    }
+
+    /**
+     * @return the node that is currently receiving children, e.g. the stylesheet between two stylerules
+     */
+    protected ASTNode getCurrentContainer() {
+        return currentContainer.peek();
+    }
+
+    @Override
+    public void enterStylesheet(ICSSParser.StylesheetContext ctx) {
+        currentContainer.push(new Stylesheet());
+    }
+
+    @Override
+    public void exitStylesheet(ICSSParser.StylesheetContext ctx) {
+        ast.setRoot((Stylesheet) currentContainer.pop());
+    }
+
+    @Override
+    public void enterStylerule(ICSSParser.StyleruleContext ctx) {
+        currentContainer.push(new Stylerule());
+    }
+
+    @Override
+    public void exitStylerule(ICSSParser.StyleruleContext ctx) {
+        Stylerule stylerule = (Stylerule) currentContainer.pop();
+        addStylerule((Stylesheet) currentContainer.peek(), stylerule);
+    }
+
+    /**
+     * Adds a completed stylerule to the stylesheet.
+     * Override this to consume the stylerules one at a time instead of collecting them.
+     */
+    protected void addStylerule(Stylesheet stylesheet, Stylerule stylerule) {
+        stylesheet.addChild(stylerule);
+    }
+
+    @Override
+    public void exitTagSelector(ICSSParser.TagSelectorContext ctx) {
+        currentContainer.peek().addChild(new TagSelector(names.intern(ctx.getStart().getText())));
+    }
+
+    @Override
+    public void exitClassSelector(ICSSParser.ClassSelectorContext ctx) {
+        currentContainer.peek().addChild(new ClassSelector(names.intern(ctx.getStart().getText())));
+    }
+
+    @Override
+    public void exitIdSelector(ICSSParser.IdSelectorContext ctx) {
+        currentContainer.peek().addChild(new IdSelector(names.intern(ctx.getStart().getText())));
+    }
+
+    @Override
+    public void exitVariableAssignment(ICSSParser.VariableAssignmentContext ctx) {
+        Expression expression = expressions.pop();
+        VariableAssignment variableAssignment = new VariableAssignment();
+        variableAssignment.addChild(expressions.pop());
+        variableAssignment.addChild(expression);
+        currentContainer.peek().addChild(variableAssignment);
+    }
+
+    @Override
+    public void exitVariableReference(ICSSParser.VariableReferenceContext ctx) {
+        expressions.push(new VariableReference(names.intern(ctx.getStart().getText())));
+    }
+
+    @Override
+    public void exitDeclaration(ICSSParser.DeclarationContext ctx) {
+        Declaration declaration = new Declaration(names.intern(ctx.getStart().getText()));
+        declaration.addChild(expressions.pop());
+        currentContainer.peek().addChild(declaration);
+    }
+
+    @Override
+    public void exitBoolLiteral(ICSSParser.BoolLiteralContext ctx) {
+        expressions.push(Literals.bool(ctx.getStart().getText()));
+    }
+
+    @Override
+    public void exitColorLiteral(ICSSParser.ColorLiteralContext ctx) {
+        expressions.push(Literals.color(ctx.getStart().getText()));
+    }
+
+    @Override
+    public void exitPercentageLiteral(ICSSParser.PercentageLiteralContext ctx) {
+        expressions.push(Literals.percentage(ctx.getStart().getText()));
+    }
+
+    @Override
+    public void exitPixelLiteral(ICSSParser.PixelLiteralContext ctx) {
+        expressions.push(Literals.pixel(ctx.getStart().getText()));
+    }
+
+    @Override
+    public void exitScalarLiteral(ICSSParser.ScalarLiteralContext ctx) {
+        expressions.push(Literals.scalar(ctx.getStart().getText()));
+    }
+
+    @Override
+    public void exitExpression(ICSSParser.ExpressionContext ctx) {
+        //Only the operator token is a child of an operation context, the operands are already on the stack
+        Operation operation;
+        if (ctx.MUL() != null) {
+            operation = new MultiplyOperation();
+        } else if (ctx.PLUS() != null) {
+            operation = new AddOperation();
+        } else if (ctx.MIN() != null) {
+            operation = new SubtractOperation();
+        } else {
+            return;
+        }
+        Expression rhs = expressions.pop();
+        operation.addChild(expressions.pop());
+        operation.addChild(rhs);
+        expressions.push(operation);
+    }
+
+    @Override
+    public void enterIfClause(ICSSParser.IfClauseContext ctx) {
+        currentContainer.push(new IfClause());
+    }
+
+    @Override
+    public void exitIfClause(ICSSParser.IfClauseContext ctx) {
+        ASTNode ifClause = currentContainer.pop();
+        ifClause.addChild(expressions.pop());
+        currentContainer.peek().addChild(ifClause);
+    }
+
+    @Override
+    public void enterElseClause(ICSSParser.ElseClauseContext ctx) {
+        currentContainer.push(new ElseClause());
+    }
+
+    @Override
+    public void exitElseClause(ICSSParser.ElseClauseContext ctx) {
+        ASTNode elseClause = currentContainer.pop();
+        currentContainer.peek().addChild(elseClause);
+    }
+}
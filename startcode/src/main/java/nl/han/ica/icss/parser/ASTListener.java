@@ -26,9 +26,13 @@ public class ASTListener extends ICSSBaseListener {
     //Use this to keep track of the parent nodes when recursively traversing the ast
     private IHANStack<ASTNode> currentContainer;
 
+    //Every name in the stylesheet, so repeated names share one String
+    private NameTable names;
+
     public ASTListener() {
         ast = new AST();
         currentContainer = new HANStack<>();
+        names = new NameTable();
     }
 
     public AST getAST() {
@@ -58,7 +62,7 @@ public class ASTListener extends ICSSBaseListener {
 
     @Override
     public void enterTagSelector(ICSSParser.TagSelectorContext ctx) {
-        ASTNode tagSelector = new TagSelector(ctx.getText());
+        ASTNode tagSelector = new TagSelector(names.intern(ctx.getText()));
         currentContainer.push(tagSelector);
     }
 
@@ -70,7 +74,7 @@ public class ASTListener extends ICSSBaseListener {
 
     @Override
     public void enterClassSelector(ICSSParser.ClassSelectorContext ctx) {
-        ASTNode classSelector = new ClassSelector(ctx.getText());
+        ASTNode classSelector = new ClassSelector(names.intern(ctx.getText()));
         currentContainer.push(classSelector);
     }
 
@@ -82,7 +86,7 @@ public class ASTListener extends ICSSBaseListener {
 
     @Override
     public void enterIdSelector(ICSSParser.IdSelectorContext ctx) {
-        ASTNode idSelector = new IdSelector(ctx.getText());
+        ASTNode idSelector = new IdSelector(names.intern(ctx.getText()));
         currentContainer.push(idSelector);
     }
 
@@ -105,7 +109,7 @@ public class ASTListener extends ICSSBaseListener {
 
     @Override
     public void enterVariableReference(ICSSParser.VariableReferenceContext ctx) {
-        currentContainer.peek().addChild(new VariableReference(ctx.getText()));
+        currentContainer.peek().addChild(new VariableReference(names.intern(ctx.getText())));
     }
 
     @Override
@@ -121,35 +125,35 @@ public class ASTListener extends ICSSBaseListener {
 
     @Override
     public void enterPropertyName(ICSSParser.PropertyNameContext ctx) {
-        currentContainer.peek().addChild(new PropertyName(ctx.getText()));
+        currentContainer.peek().addChild(new PropertyName(names.intern(ctx.getText())));
     }
     @Override
     public void enterBoolLiteral(ICSSParser.BoolLiteralContext ctx) {
-        ASTNode boolLiteral = new BoolLiteral(ctx.getText());
+        ASTNode boolLiteral = Literals.bool(ctx.getText());
         currentContainer.peek().addChild(boolLiteral);
     }
 
     @Override
     public void enterColorLiteral(ICSSParser.ColorLiteralContext ctx) {
-        ASTNode colorLiteal = new ColorLiteral(ctx.getText());
+        ASTNode colorLiteal = Literals.color(ctx.getText());
         currentContainer.peek().addChild(colorLiteal);
     }
 
     @Override
     public void enterPercentageLiteral(ICSSParser.PercentageLiteralContext ctx) {
-        ASTNode percentageLiteral = new PercentageLiteral(ctx.getText());
+        ASTNode percentageLiteral = Literals.percentage(ctx.getText());
         currentContainer.peek().addChild(percentageLiteral);
     }
 
     @Override
     public void enterPixelLiteral(ICSSParser.PixelLiteralContext ctx) {
-        ASTNode pixelLiteral = new PixelLiteral(ctx.getText());
+        ASTNode pixelLiteral = Literals.pixel(ctx.getText());
         currentContainer.peek().addChild(pixelLiteral);
     }
 
     @Override
     public void enterScalarLiteral(ICSSParser.ScalarLiteralContext ctx) {
-        ASTNode scalarLiteral = new ScalarLiteral(ctx.getText());
+        ASTNode scalarLiteral = Literals.scalar(ctx.getText());
         currentContainer.peek().addChild(scalarLiteral);
     }
 
@@ -0,0 +1,133 @@
+package nl.han.ica.icss.parser;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.IntStream;
+import org.antlr.v4.runtime.misc.Interval;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A CharStream that reads single-byte characters straight from a (memory-mapped) byte buffer.
+ * The ICSS lexer only accepts ASCII, so for almost every input each byte is exactly one character
+ * and the file never has to be decoded into a String.
+ */
+public class MappedCharStream implements CharStream {
+
+    private final ByteBuffer buffer;
+    private final String sourceName;
+    private final int size;
+    private int index = 0;
+
+    public MappedCharStream(ByteBuffer buffer, String sourceName) {
+        this.buffer = buffer;
+        this.sourceName = sourceName;
+        this.size = buffer.limit();
+    }
+
+    /**
+     * Memory-maps file and returns a stream over its bytes, see {@link #of}.
+     */
+    public static CharStream open(Path file) throws IOException {
+        return of(map(file), file.toString());
+    }
+
+    /**
+     * @return the contents of file, memory-mapped read-only
+     */
+    public static MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is larger than 2 GB");
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+    }
+
+    /**
+     * Returns a stream over the bytes of buffer. Buffers that contain non-ASCII bytes
+     * are decoded as UTF-8 instead, so error messages show the right characters.
+     */
+    public static CharStream of(ByteBuffer buffer, String sourceName) {
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) < 0) {
+                return CharStreams.fromString(StandardCharsets.UTF_8.decode(buffer.duplicate().position(0)).toString(), sourceName);
+            }
+        }
+        return new MappedCharStream(buffer, sourceName);
+    }
+
+    @Override
+    public String getText(Interval interval) {
+        int start = Math.max(interval.a, 0);
+        int stop = Math.min(interval.b, size - 1);
+        if (stop < start) {
+            return "";
+        }
+        byte[] bytes = new byte[stop - start + 1];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public void consume() {
+        if (index >= size) {
+            throw new IllegalStateException("cannot consume EOF");
+        }
+        index++;
+    }
+
+    @Override
+    public int LA(int i) {
+        if (i == 0) {
+            return 0;
+        }
+        int position = i > 0 ? index + i - 1 : index + i;
+        if (position < 0 || position >= size) {
+            return IntStream.EOF;
+        }
+        return buffer.get(position) & 0xFF;
+    }
+
+    @Override
+    public int mark() {
+        //The whole buffer stays available, so marks are not needed
+        return -1;
+    }
+
+    @Override
+    public void release(int marker) {
+    }
+
+    @Override
+    public int index() {
+        return index;
+    }
+
+    @Override
+    public void seek(int index) {
+        this.index = Math.min(index, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public String getSourceName() {
+        return sourceName;
+    }
+
+    @Override
+    public String toString() {
+        return getText(Interval.of(0, size - 1));
+    }
+}
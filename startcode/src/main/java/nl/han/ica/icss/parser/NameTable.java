@@ -0,0 +1,34 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.types.PropertyRegistry;
+
+import java.util.HashMap;
+
+/**
+ * Interns the names in one stylesheet (properties, selectors and variables), so every
+ * occurrence of a name in the AST shares one String instance with a cached hash code.
+ * The table starts out with the property names of the default {@link PropertyRegistry},
+ * which are always returned as the registry's instances.
+ */
+public class NameTable {
+
+    private final HashMap<String, String> names = new HashMap<>();
+
+    public NameTable() {
+        for (String name : PropertyRegistry.getDefault().getNames()) {
+            names.put(name, name);
+        }
+    }
+
+    /**
+     * @return the instance of name that was interned first
+     */
+    public String intern(String name) {
+        String interned = names.putIfAbsent(name, name);
+        return interned != null ? interned : name;
+    }
+
+    public int size() {
+        return names.size();
+    }
+}
@@ -0,0 +1,60 @@
+package nl.han.ica.icss.parser;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters of the two-stage parse in {@link ParserPool#parseStylesheet}.
+ * A high fallback rate means the SLL stage is mostly wasted work for the given input.
+ */
+public final class ParseStatistics {
+
+    private static final LongAdder sllParses = new LongAdder();
+    private static final LongAdder llFallbacks = new LongAdder();
+    private static final LongAdder fullContextAttempts = new LongAdder();
+
+    private ParseStatistics() { }
+
+    static void sllParse() {
+        sllParses.increment();
+    }
+
+    static void llFallback() {
+        llFallbacks.increment();
+    }
+
+    static void fullContextAttempt() {
+        fullContextAttempts.increment();
+    }
+
+    /**
+     * @return number of stylesheets parsed, each starting with an SLL attempt
+     */
+    public static long getSllParses() {
+        return sllParses.sum();
+    }
+
+    /**
+     * @return number of stylesheets the SLL stage gave up on and that were reparsed with full LL
+     */
+    public static long getLlFallbacks() {
+        return llFallbacks.sum();
+    }
+
+    /**
+     * @return number of decisions during LL reparses that needed full-context prediction
+     */
+    public static long getFullContextAttempts() {
+        return fullContextAttempts.sum();
+    }
+
+    public static void reset() {
+        sllParses.reset();
+        llFallbacks.reset();
+        fullContextAttempts.reset();
+    }
+
+    public static String summary() {
+        return String.format("SLL parses: %d, LL fallbacks: %d, full-context attempts: %d",
+                getSllParses(), getLlFallbacks(), getFullContextAttempts());
+    }
+}
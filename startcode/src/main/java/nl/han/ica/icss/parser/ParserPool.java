@@ -0,0 +1,212 @@
+package nl.han.ica.icss.parser;
+
+import nl.han.ica.icss.ast.AST;
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.ATNConfigSet;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.dfa.DFA;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+
+import java.util.BitSet;
+
+/**
+ * Keeps one lexer, token stream and parser per thread and points them at new input
+ * instead of constructing them for every compilation.
+ *
+ * The prediction DFA of the generated lexer and parser is static, so it is shared by all
+ * pooled instances and stays warm between compilations. Use {@link #clearDFACache()} to
+ * drop it when memory is more important than parse speed, between compilations only.
+ */
+public final class ParserPool {
+
+    private static final ThreadLocal<ParserPool> POOL = ThreadLocal.withInitial(ParserPool::new);
+
+    private final ICSSLexer lexer;
+    private final CommonTokenStream tokens;
+    private final ICSSParser parser;
+    private final ANTLRErrorStrategy bailErrorStrategy = new BailErrorStrategy() {
+        //Parse listeners are detached before bailing out, so they never see the unwinding rules
+        @Override
+        public void recover(Parser recognizer, RecognitionException e) {
+            recognizer.removeParseListeners();
+            super.recover(recognizer, e);
+        }
+
+        @Override
+        public Token recoverInline(Parser recognizer) throws RecognitionException {
+            recognizer.removeParseListeners();
+            return super.recoverInline(recognizer);
+        }
+    };
+    private final ANTLRErrorStrategy defaultErrorStrategy = new DefaultErrorStrategy();
+    //Error recovery leaves rules half matched, so parse listeners stop at the first syntax error
+    private final ANTLRErrorListener stopBuilding = new BaseErrorListener() {
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                                int charPositionInLine, String msg, RecognitionException e) {
+            parser.removeParseListeners();
+        }
+    };
+    private ANTLRErrorListener errorListener;
+
+    private ParserPool() {
+        lexer = new ICSSLexer(null);
+        tokens = new CommonTokenStream(lexer);
+        parser = new ICSSParser(tokens);
+    }
+
+    /**
+     * Returns the parser of the calling thread, reset to read from input with full LL prediction.
+     * Errors of both the lexer and the parser are reported to errorListener.
+     * Call {@link #release()} on the same thread when done with the parser.
+     */
+    public static ICSSParser acquire(CharStream input, ANTLRErrorListener errorListener) {
+        ParserPool pool = POOL.get();
+        pool.errorListener = errorListener;
+        pool.lexer.removeErrorListeners();
+        pool.lexer.addErrorListener(errorListener);
+
+        pool.lexer.setInputStream(input);
+        pool.tokens.setTokenSource(pool.lexer);
+        pool.parser.setTokenStream(pool.tokens);
+        pool.parser.removeParseListeners();
+        pool.parser.setBuildParseTree(true);
+        pool.useLL();
+        return pool.parser;
+    }
+
+    /**
+     * Points the calling thread's parser at input like {@link #acquire} and lexes all of it up front,
+     * so lexing and parsing can be measured separately. Follow up with {@link #parseStylesheet()}
+     * or {@link #buildStylesheet()} and {@link #release()}.
+     *
+     * @return the number of tokens, including EOF
+     */
+    public static int lex(CharStream input, ANTLRErrorListener errorListener) {
+        acquire(input, errorListener);
+        ParserPool pool = POOL.get();
+        pool.tokens.fill();
+        return pool.tokens.size();
+    }
+
+    /**
+     * Parses input as a stylesheet in two stages. The fast SLL prediction mode is tried first,
+     * bailing out on the first syntax error. Only if that fails the input is parsed again with
+     * full LL prediction and normal error recovery, so syntax errors are reported exactly as
+     * a plain LL parse would report them.
+     * Call {@link #release()} on the same thread when done with the result.
+     */
+    public static ICSSParser.StylesheetContext parseStylesheet(CharStream input, ANTLRErrorListener errorListener) {
+        acquire(input, errorListener);
+        return parseStylesheet();
+    }
+
+    /**
+     * Parses the input of the last {@link #acquire} or {@link #lex} call like {@link #parseStylesheet(CharStream, ANTLRErrorListener)}.
+     */
+    public static ICSSParser.StylesheetContext parseStylesheet() {
+        ParserPool pool = POOL.get();
+
+        ICSSParser.StylesheetContext stylesheet = pool.trySLL();
+        if (stylesheet == null) {
+            stylesheet = pool.parseLL();
+        }
+        return stylesheet;
+    }
+
+    /**
+     * Parses input like {@link #parseStylesheet} but builds the AST during parsing with an
+     * {@link ASTBuilder} instead of materialising the parse tree.
+     * Returns an empty AST when the parser reported syntax errors.
+     * Call {@link #release()} on the same thread when done with the parser.
+     */
+    public static AST buildStylesheet(CharStream input, ANTLRErrorListener errorListener) {
+        acquire(input, errorListener);
+        return buildStylesheet();
+    }
+
+    /**
+     * Builds the AST of the input of the last {@link #acquire} or {@link #lex} call like {@link #buildStylesheet(CharStream, ANTLRErrorListener)}.
+     */
+    public static AST buildStylesheet() {
+        ParserPool pool = POOL.get();
+        pool.parser.setBuildParseTree(false);
+
+        ASTBuilder builder = new ASTBuilder();
+        pool.parser.addParseListener(builder);
+        if (pool.trySLL() == null) {
+            builder = new ASTBuilder();
+            pool.parser.addParseListener(builder);
+            pool.parseLL();
+        }
+        return pool.parser.getNumberOfSyntaxErrors() == 0 ? builder.getAST() : new AST();
+    }
+
+    /**
+     * Drops the input, buffered tokens and error listeners of the calling thread's parser,
+     * so they can be garbage collected while the parser itself is kept for the next call.
+     */
+    public static void release() {
+        ParserPool pool = POOL.get();
+        pool.errorListener = null;
+        pool.lexer.setInputStream(null);
+        pool.tokens.setTokenSource(pool.lexer);
+        pool.lexer.removeErrorListeners();
+        pool.parser.removeErrorListeners();
+        pool.parser.removeParseListeners();
+        pool.parser.setBuildParseTree(true);
+    }
+
+    /**
+     * Clears the shared lexer and parser DFA caches. They are rebuilt on demand,
+     * so the next compilations will be slower until the cache is warm again.
+     *
+     * The caches are shared by the pooled parsers of all threads and are replaced without
+     * any locking, so only call this while no compilation is running on any thread.
+     */
+    public static void clearDFACache() {
+        ParserPool pool = POOL.get();
+        pool.lexer.getInterpreter().clearDFA();
+        pool.parser.getInterpreter().clearDFA();
+    }
+
+    private ICSSParser.StylesheetContext trySLL() {
+        //Syntax errors are not reported in this stage, they are reported by the LL reparse
+        parser.removeErrorListeners();
+        parser.setErrorHandler(bailErrorStrategy);
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+
+        ParseStatistics.sllParse();
+        try {
+            return parser.stylesheet();
+        } catch (ParseCancellationException e) {
+            ParseStatistics.llFallback();
+            return null;
+        }
+    }
+
+    private ICSSParser.StylesheetContext parseLL() {
+        parser.reset();
+        useLL();
+        return parser.stylesheet();
+    }
+
+    private void useLL() {
+        parser.removeErrorListeners();
+        parser.addErrorListener(errorListener);
+        parser.addErrorListener(FullContextCounter.INSTANCE);
+        parser.addErrorListener(stopBuilding);
+        parser.setErrorHandler(defaultErrorStrategy);
+        parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+    }
+
+    private static class FullContextCounter extends BaseErrorListener {
+        static final FullContextCounter INSTANCE = new FullContextCounter();
+
+        @Override
+        public void reportAttemptingFullContext(Parser recognizer, DFA dfa, int startIndex, int stopIndex,
+                                                BitSet conflictingAlts, ATNConfigSet configs) {
+            ParseStatistics.fullContextAttempt();
+        }
+    }
+}
@@ -1,48 +1,63 @@
 package nl.han.ica.icss.transforms;
 
 import nl.han.ica.icss.ast.*;
-import nl.han.ica.icss.ast.literals.*;
-import nl.han.ica.icss.ast.operations.AddOperation;
-import nl.han.ica.icss.ast.operations.MultiplyOperation;
-import nl.han.ica.icss.ast.operations.SubtractOperation;
+import nl.han.ica.icss.checker.Resolver;
+import nl.han.ica.icss.events.StyleruleEvent;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 
 public class EvalExpressions implements Transform {
 
-    private LinkedList<HashMap<String, Literal>> variableValues;
-
-
-    public EvalExpressions() {
-        variableValues = new LinkedList<>();
-    }
+    private final Evaluator evaluator = new Evaluator();
 
     @Override
     public void apply(AST ast) {
+        if (ast.slots < 0) {
+            new Resolver().resolve(ast);
+        }
         evaluateStylesheet(ast.root);
 
     }
 
+    /**
+     * Evaluates the global variable assignments of a stylesheet. Their values are kept
+     * for the following {@link #evaluateStylerule} calls.
+     * The assignments must have been resolved with {@link Resolver#resolveGlobals}.
+     */
+    public void evaluateGlobals(List<VariableAssignment> globals) {
+        evaluator.evaluateGlobals(globals);
+    }
+
+    /**
+     * Evaluates a single stylerule against the globals of the last {@link #evaluateGlobals} call.
+     * The stylerule must have been resolved with {@link Resolver#resolveStylerule}.
+     */
+    public void evaluateStylerule(Stylerule styleRule) {
+        StyleruleEvent event = new StyleruleEvent();
+        event.begin();
+        long lookupsBefore = evaluator.lookups;
+        long createdBefore = evaluator.created;
+        evaluator.startStylerule();
+        evaluateStyleRule(styleRule);
+        event.commit(StyleruleEvent.EVALUATE, styleRule, evaluator.lookups - lookupsBefore, evaluator.created - createdBefore);
+    }
+
     private void evaluateStylesheet(Stylesheet sheet) {
-        HashMap<String, Literal> hashMap = new HashMap<>();
-        List<ASTNode> toBeDeleted = new ArrayList<>();
+        List<VariableAssignment> globals = new ArrayList<>();
 
         for (ASTNode child : sheet.getChildren()) {
             if (child instanceof VariableAssignment) {
-                evaluateVariableAssignment((VariableAssignment) child, hashMap);
-                toBeDeleted.add(child);
+                globals.add((VariableAssignment) child);
             }
         }
-        variableValues.add(hashMap);
+        evaluateGlobals(globals);
         for (ASTNode child : sheet.getChildren()) {
             if (child instanceof Stylerule) {
-                evaluateStyleRule((Stylerule) child);
+                evaluateStylerule((Stylerule) child);
             }
         }
-        deletedToBeDeleted(sheet, toBeDeleted);
+        deletedToBeDeleted(sheet, new ArrayList<>(globals));
     }
 
     private void deletedToBeDeleted(ASTNode node, List<ASTNode> toBeDeleted) {
@@ -52,192 +67,33 @@ public class EvalExpressions implements Transform {
     }
 
     private void evaluateStyleRule(Stylerule styleRule) {
-        HashMap<String, Literal> hashMap = new HashMap<>();
-        for (ASTNode child : styleRule.getChildren()) {
-            if (child instanceof VariableAssignment) {
-                evaluateVariableAssignment((VariableAssignment) child, hashMap);
-                styleRule.removeChild(child);
-            }
-        }
-        variableValues.add(hashMap);
-        for (ASTNode child : styleRule.getChildren()) {
-            if (child instanceof Declaration) {
-                var l = getLiteral(((Declaration) child).expression);
-                ((Declaration) child).expression = getLiteral(((Declaration) child).expression);
-            } else if (child instanceof IfClause) {
-                evaluateIfClause((IfClause) child);
-                variableValues.removeLast();
-                styleRule.removeChild(child);
-            }
-        }
-        variableValues.removeLast();
+        evaluateBlock(styleRule, styleRule.body);
     }
 
     private void evaluateIfClause(IfClause ifClause) {
-        HashMap<String, Literal> hashMap = new HashMap<>();
-        List<ASTNode> toBeDeleted = new ArrayList<>();
-        ifClause.conditionalExpression = getLiteral(ifClause.conditionalExpression);
-            for (ASTNode statement : ifClause.body) {
-                if (statement instanceof VariableAssignment) {
-                    evaluateVariableAssignment((VariableAssignment) statement, hashMap);
-                    toBeDeleted.add(statement);
-                }
-            }
-            variableValues.add(hashMap);
-            for (ASTNode statement : ifClause.body) {
-                if (statement instanceof Declaration) {
-                    ((Declaration) statement).expression = getLiteral(((Declaration) statement).expression);
-                } else if (statement instanceof IfClause) {
-                    evaluateIfClause((IfClause) statement);
-                    variableValues.removeLast();
-                }
-            }
+        ifClause.conditionalExpression = evaluator.getLiteral(ifClause.conditionalExpression);
+        evaluateBlock(ifClause, ifClause.body);
         if (ifClause.elseClause != null) {
-            evaluateElseClause(ifClause.elseClause);
-            variableValues.removeLast();
+            evaluateBlock(ifClause.elseClause, ifClause.elseClause.body);
         }
-        deletedToBeDeleted(ifClause, toBeDeleted);
     }
 
-    private void evaluateElseClause(ElseClause elseClause) {
-        HashMap<String, Literal> hashMap = new HashMap<>();
+    //Assignments are evaluated before the declarations, matching the slots the Resolver handed out
+    private void evaluateBlock(ASTNode block, List<ASTNode> body) {
         List<ASTNode> toBeDeleted = new ArrayList<>();
-        for (ASTNode statement : elseClause.body) {
+        for (ASTNode statement : body) {
             if (statement instanceof VariableAssignment) {
-                evaluateVariableAssignment((VariableAssignment) statement, hashMap);
+                evaluator.evaluateVariableAssignment((VariableAssignment) statement);
                 toBeDeleted.add(statement);
             }
         }
-        variableValues.add(hashMap);
-        for (ASTNode statement : elseClause.body) {
+        for (ASTNode statement : body) {
             if (statement instanceof Declaration) {
-                ((Declaration) statement).expression = getLiteral(((Declaration) statement).expression);
+                ((Declaration) statement).expression = evaluator.getLiteral(((Declaration) statement).expression);
             } else if (statement instanceof IfClause) {
                 evaluateIfClause((IfClause) statement);
             }
         }
-        deletedToBeDeleted(elseClause, toBeDeleted);
-    }
-
-
-    private void evaluateVariableAssignment(VariableAssignment variableAssignment, HashMap<String, Literal> hashMap) {
-        if (variableAssignment.expression instanceof Literal) {
-            addVariable(variableAssignment, hashMap);
-            variableValues.add(hashMap);
-        } else if (variableAssignment.expression instanceof Operation) {
-            hashMap.put(variableAssignment.name.name, getLiteral(variableAssignment.expression));
-            variableValues.add(hashMap);
-        }
+        deletedToBeDeleted(block, toBeDeleted);
     }
-
-    private Literal getLiteral(Expression expression) {
-        if (expression instanceof Operation) {
-            Operation operation = (Operation) expression;
-            if (operation instanceof MultiplyOperation) {
-                return calcMultiplyOperation((MultiplyOperation) operation);
-            } else if (operation instanceof AddOperation) {
-                return calcAddOperation((AddOperation) operation);
-            } else if (operation instanceof SubtractOperation) {
-                return calcSubtractOperation((SubtractOperation) operation);
-            }
-        } else if (expression instanceof Literal) {
-            if (expression instanceof BoolLiteral) {
-                return new BoolLiteral(((BoolLiteral) expression).value);
-            } else if (expression instanceof ColorLiteral) {
-                return new ColorLiteral(((ColorLiteral) expression).value);
-            } else if (expression instanceof PercentageLiteral) {
-                return new PercentageLiteral(((PercentageLiteral) expression).value);
-            } else if (expression instanceof PixelLiteral) {
-                return new PixelLiteral(((PixelLiteral) expression).value);
-            } else if (expression instanceof ScalarLiteral) {
-                return new ScalarLiteral(((ScalarLiteral) expression).value);
-            }
-        } else if (expression instanceof VariableReference) {
-            return evaluateVariableReference(((VariableReference) expression));
-        }
-        return null;
-    }
-
-    private Literal evaluateVariableReference(VariableReference variableReference) {
-        Literal value = null;
-        for (int i = variableValues.size(); i >= 1; i--) {
-            if (variableValues.get(i - 1).containsKey(variableReference.name)) {
-                value = variableValues.get(i - 1).get(variableReference.name);
-                break;
-            }
-        }
-        return value;
-    }
-
-    private Literal calcSubtractOperation(SubtractOperation operation) {
-        Literal result = null;
-        int total;
-        var lhs = getLiteral(operation.lhs);
-        var rhs = getLiteral(operation.rhs);
-
-        if ((lhs instanceof PixelLiteral) && (rhs instanceof PixelLiteral)) {
-            total = ((PixelLiteral) lhs).value - ((PixelLiteral) rhs).value;
-            result = new PixelLiteral(total);
-        } else if ((lhs instanceof PercentageLiteral) && (rhs instanceof PercentageLiteral)) {
-            total = ((PercentageLiteral) lhs).value - ((PercentageLiteral) rhs).value;
-            result = new PercentageLiteral(total);
-        }
-        return result;
-    }
-
-
-    private Literal calcAddOperation(AddOperation operation) {
-        Literal result = null;
-        int total;
-        var lhs = getLiteral(operation.lhs);
-        var rhs = getLiteral(operation.rhs);
-
-        if ((lhs instanceof PixelLiteral) && (rhs instanceof PixelLiteral)) {
-            total = ((PixelLiteral) lhs).value + ((PixelLiteral) rhs).value;
-            result = new PixelLiteral(total);
-        } else if ((lhs instanceof PercentageLiteral) && (rhs instanceof PercentageLiteral)) {
-            total = ((PercentageLiteral) lhs).value + ((PercentageLiteral) rhs).value;
-            result = new PercentageLiteral(total);
-
-        }
-        return result;
-    }
-
-    private Literal calcMultiplyOperation(MultiplyOperation operation) {
-        Literal result = null;
-        int total;
-        var lhs = getLiteral(operation.lhs);
-        var rhs = getLiteral(operation.rhs);
-
-        if ((lhs instanceof ScalarLiteral) && (rhs instanceof PixelLiteral)) {
-            total = ((ScalarLiteral) lhs).value * ((PixelLiteral) rhs).value;
-            result = new PixelLiteral(total);
-        } else if ((lhs instanceof PixelLiteral) && (rhs instanceof ScalarLiteral)) {
-            total = ((PixelLiteral) lhs).value * ((ScalarLiteral) rhs).value;
-            result = new PixelLiteral(total);
-        } else if ((lhs instanceof ScalarLiteral) && (rhs instanceof PercentageLiteral)) {
-            total = ((ScalarLiteral) lhs).value * ((PercentageLiteral) rhs).value;
-            result = new PercentageLiteral(total);
-        } else if ((lhs instanceof PercentageLiteral) && (rhs instanceof ScalarLiteral)) {
-            total = ((PercentageLiteral) lhs).value * ((ScalarLiteral) rhs).value;
-            result = new PercentageLiteral(total);
-        }
-        return result;
-    }
-
-    private void addVariable(VariableAssignment variableAssignment, HashMap<String, Literal> hashMap) {
-        if (variableAssignment.expression instanceof BoolLiteral) {
-            hashMap.put(variableAssignment.name.name, new BoolLiteral(((BoolLiteral) variableAssignment.expression).value));
-        } else if (variableAssignment.expression instanceof ColorLiteral) {
-            hashMap.put(variableAssignment.name.name, new ColorLiteral(((ColorLiteral) variableAssignment.expression).value));
-        } else if (variableAssignment.expression instanceof PercentageLiteral) {
-            hashMap.put(variableAssignment.name.name, new PercentageLiteral(((PercentageLiteral) variableAssignment.expression).value));
-        } else if (variableAssignment.expression instanceof PixelLiteral) {
-            hashMap.put(variableAssignment.name.name, new PixelLiteral(((PixelLiteral) variableAssignment.expression).value));
-        } else if (variableAssignment.expression instanceof ScalarLiteral) {
-            hashMap.put(variableAssignment.name.name, new ScalarLiteral(((ScalarLiteral) variableAssignment.expression).value));
-        }
-    }
-
-
 }
@@ -0,0 +1,113 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.checker.Resolver;
+import nl.han.ica.icss.events.StyleruleEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Does the work of {@link EvalExpressions} followed by {@link RemoveIf} in a single walk.
+ * The condition of an if clause is evaluated first and only the body it selects is evaluated,
+ * so the cost grows with the declarations that end up in the output, not with the dead branches.
+ * Like {@link FoldConstants}, an operation on the same values is computed only once, however often it occurs.
+ *
+ * Skipping the assignments of a dead branch is safe: the Resolver only binds references inside
+ * that branch to them.
+ */
+public class EvaluateAndPrune implements Transform {
+
+    //Dead branches only skip some of the slots of a stylerule, which the Evaluator allows for
+    private final Evaluator evaluator = new Evaluator();
+
+    @Override
+    public void apply(AST ast) {
+        if (ast.slots < 0) {
+            new Resolver().resolve(ast);
+        }
+        List<VariableAssignment> globals = new ArrayList<>();
+        for (ASTNode child : ast.root.getChildren()) {
+            if (child instanceof VariableAssignment) {
+                globals.add((VariableAssignment) child);
+            }
+        }
+        evaluateGlobals(globals);
+        for (ASTNode child : ast.root.getChildren()) {
+            if (child instanceof Stylerule) {
+                apply((Stylerule) child);
+            }
+        }
+        ast.root.body.removeIf(child -> child instanceof VariableAssignment);
+    }
+
+    /**
+     * Evaluates the global variable assignments of a stylesheet. Their values are kept
+     * for the following {@link #apply(Stylerule)} calls.
+     * The assignments must have been resolved with {@link Resolver#resolveGlobals}.
+     */
+    public void evaluateGlobals(List<VariableAssignment> globals) {
+        evaluator.evaluateGlobals(globals);
+    }
+
+    /**
+     * @return a copy of the values of the globals of the last {@link #evaluateGlobals} call, by slot
+     */
+    public long[] getGlobalValues() {
+        return evaluator.getGlobalValues();
+    }
+
+    /**
+     * Makes the globals another instance evaluated known to this one, instead of evaluating them again.
+     * @param globalValues the result of {@link #getGlobalValues()}; it is only read, so instances on other threads may share it
+     */
+    public void setGlobalValues(long[] globalValues) {
+        evaluator.setGlobalValues(globalValues);
+    }
+
+    /**
+     * @return the number of operations computed so far; repeated operations on the same values are computed once
+     */
+    public long getComputedOperations() {
+        return evaluator.computed;
+    }
+
+    /**
+     * Replaces the body of a single stylerule by the evaluated declarations it selects.
+     * The stylerule must have been resolved with {@link Resolver#resolveStylerule}.
+     */
+    public void apply(Stylerule stylerule) {
+        StyleruleEvent event = new StyleruleEvent();
+        event.begin();
+        long lookupsBefore = evaluator.lookups;
+        long createdBefore = evaluator.created;
+        evaluator.startStylerule();
+        ArrayList<ASTNode> declarations = new ArrayList<>();
+        evaluateBlock(stylerule.body, declarations);
+        stylerule.body = declarations;
+        event.commit(StyleruleEvent.EVALUATE_AND_PRUNE, stylerule, evaluator.lookups - lookupsBefore, evaluator.created - createdBefore);
+    }
+
+    //Assignments are evaluated before the declarations, matching the slots the Resolver handed out
+    private void evaluateBlock(List<ASTNode> body, List<ASTNode> declarations) {
+        for (ASTNode statement : body) {
+            if (statement instanceof VariableAssignment) {
+                evaluator.evaluateVariableAssignment((VariableAssignment) statement);
+            }
+        }
+        for (ASTNode statement : body) {
+            if (statement instanceof Declaration) {
+                Declaration declaration = (Declaration) statement;
+                declaration.expression = evaluator.getLiteral(declaration.expression);
+                declarations.add(declaration);
+            } else if (statement instanceof IfClause) {
+                IfClause ifClause = (IfClause) statement;
+                if (Values.value(evaluator.evaluate(ifClause.conditionalExpression)) != 0) {
+                    evaluateBlock(ifClause.body, declarations);
+                } else if (ifClause.elseClause != null) {
+                    evaluateBlock(ifClause.elseClause.body, declarations);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.VariableAssignment;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntToLongFunction;
+
+/**
+ * The variable values and expression evaluation shared by {@link EvalExpressions} and {@link EvaluateAndPrune}.
+ *
+ * Values are kept packed (see {@link Values}), for the globals by slot and for the variables of the current
+ * stylerule by slot - localBase. The Resolver hands out the slots of a stylerule one after another, so the
+ * memory needed grows with the largest stylerule, not with the stylesheet.
+ *
+ * Operations are hash-consed on their operator and operand values, which are canonical as packed values:
+ * an expression like {@code ParWidth + 20px} repeated in many stylerules is computed once. The table is
+ * cleared when it reaches {@value #MAX_OPERATIONS} entries, so a long stream of distinct values does not grow it forever.
+ */
+final class Evaluator implements IntToLongFunction, Values.Operators {
+
+    private static final int MAX_OPERATIONS = 1 << 16;
+
+    private long[] globalValues = new long[0];
+    private int globalSlots;
+    private long[] localValues = new long[16];
+    private int localBase = -1;
+    //Number of variable lookups and literals created so far, reported per stylerule to JFR
+    long lookups;
+    long created;
+    //Open addressing table of computed operations; operator 0 marks an empty entry, as operators start at Values.ADD
+    private int[] operators = new int[256];
+    private long[] lefts = new long[256];
+    private long[] rights = new long[256];
+    private long[] results = new long[256];
+    private int operationCount;
+    //Number of operations computed rather than found in the table
+    long computed;
+
+    /**
+     * Evaluates the global variable assignments, replacing the globals evaluated before.
+     */
+    void evaluateGlobals(List<VariableAssignment> globals) {
+        globalValues = new long[16];
+        globalSlots = 0;
+        for (VariableAssignment variableAssignment : globals) {
+            long value = evaluate(variableAssignment.expression);
+            int slot = variableAssignment.name.slot;
+            if (slot >= globalValues.length) {
+                globalValues = Arrays.copyOf(globalValues, Math.max(slot + 1, globalValues.length * 2));
+            }
+            globalValues[slot] = value;
+            globalSlots = Math.max(globalSlots, slot + 1);
+        }
+    }
+
+    long[] getGlobalValues() {
+        return Arrays.copyOf(globalValues, globalSlots);
+    }
+
+    void setGlobalValues(long[] globalValues) {
+        this.globalValues = globalValues;
+        globalSlots = globalValues.length;
+    }
+
+    /**
+     * Forgets the variables of the previous stylerule.
+     */
+    void startStylerule() {
+        localBase = -1;
+    }
+
+    void evaluateVariableAssignment(VariableAssignment variableAssignment) {
+        long value = evaluate(variableAssignment.expression);
+        int slot = variableAssignment.name.slot;
+        if (localBase < 0) {
+            localBase = slot;
+        }
+        int index = slot - localBase;
+        if (index >= localValues.length) {
+            localValues = Arrays.copyOf(localValues, Math.max(index + 1, localValues.length * 2));
+        }
+        localValues[index] = value;
+    }
+
+    //Writes an evaluated value back into the tree. Literals are already evaluated and are kept as they are
+    Expression getLiteral(Expression expression) {
+        if (expression instanceof Literal) {
+            return expression;
+        }
+        created++;
+        return Values.toLiteral(evaluate(expression));
+    }
+
+    long evaluate(Expression expression) {
+        return Values.evaluate(expression, this, this);
+    }
+
+    @Override
+    public long apply(int operator, long lhs, long rhs) {
+        int mask = operators.length - 1;
+        int i = index(operator, lhs, rhs, mask);
+        for (; operators[i] != 0; i = (i + 1) & mask) {
+            if (operators[i] == operator && lefts[i] == lhs && rights[i] == rhs) {
+                return results[i];
+            }
+        }
+        long result = Values.apply(operator, lhs, rhs);
+        computed++;
+        if ((operationCount + 1) * 2 > operators.length) {
+            if (operators.length >= MAX_OPERATIONS * 2) {
+                Arrays.fill(operators, 0);
+                operationCount = 0;
+            } else {
+                grow();
+            }
+            mask = operators.length - 1;
+            i = index(operator, lhs, rhs, mask);
+            while (operators[i] != 0) {
+                i = (i + 1) & mask;
+            }
+        }
+        operators[i] = operator;
+        lefts[i] = lhs;
+        rights[i] = rhs;
+        results[i] = result;
+        operationCount++;
+        return result;
+    }
+
+    private void grow() {
+        int[] oldOperators = operators;
+        long[] oldLefts = lefts;
+        long[] oldRights = rights;
+        long[] oldResults = results;
+        int length = oldOperators.length * 2;
+        operators = new int[length];
+        lefts = new long[length];
+        rights = new long[length];
+        results = new long[length];
+        int mask = length - 1;
+        for (int j = 0; j < oldOperators.length; j++) {
+            if (oldOperators[j] != 0) {
+                int i = index(oldOperators[j], oldLefts[j], oldRights[j], mask);
+                while (operators[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                operators[i] = oldOperators[j];
+                lefts[i] = oldLefts[j];
+                rights[i] = oldRights[j];
+                results[i] = oldResults[j];
+            }
+        }
+    }
+
+    private static int index(int operator, long lhs, long rhs, int mask) {
+        long hash = ((lhs * 31 + rhs) * 31 + operator) * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+
+    @Override
+    public long applyAsLong(int slot) {
+        lookups++;
+        if (slot >= 0 && slot < globalSlots) {
+            return globalValues[slot];
+        }
+        int index = slot - localBase;
+        return localBase < 0 || index < 0 || index >= localValues.length ? Values.NONE : localValues[index];
+    }
+}
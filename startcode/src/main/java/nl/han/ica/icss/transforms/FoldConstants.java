@@ -0,0 +1,221 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.checker.Resolver;
+import nl.han.ica.icss.events.StyleruleEvent;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Replaces every operation by the literal of its value, computing each distinct operation only once.
+ *
+ * The Resolver gives every assignment its own slot and every assignment is evaluated exactly once,
+ * so a slot always holds the same value and an operation over literals and variable references is
+ * a constant. Operations are numbered structurally, bottom-up: an operation is identified by its
+ * operator and the numbers of its operands, and a variable reference gets the number of the value
+ * its assignment holds. An expression like {@code ParWidth + 20px} repeated in many stylerules is
+ * therefore computed once, and the cost of this transform grows with the number of distinct
+ * expressions instead of their occurrences.
+ *
+ * Variable references and assignments stay in the tree; {@link EvalExpressions} resolves and removes
+ * them afterwards. Operations without a valid value are left for EvalExpressions as well.
+ */
+public class FoldConstants implements Transform {
+
+    //Kinds in the top 3 bits of a key. Values are keyed by their packed value (see Values),
+    //operations by their operator (Values.ADD, SUBTRACT or MULTIPLY) and the numbers of both operands in 30 bits each
+    private static final int VALUE = 1;
+
+    private static final int OPERAND_BITS = 30;
+
+    //Open addressing table from key to the number of a value; 0 marks an empty slot, as no key is 0
+    private long[] keys;
+    private int[] numbers;
+    private int size;
+    //Packed value by number
+    private long[] values;
+    private int valueCount;
+    //Number of the value of every variable, by the slot the Resolver gave its assignment
+    private int[] slotNumbers;
+    //Number of variable lookups and operations folded so far, reported per stylerule to JFR
+    private long lookups;
+    private long folded;
+
+    public FoldConstants() {
+        keys = new long[256];
+        numbers = new int[256];
+        values = new long[64];
+        slotNumbers = new int[16];
+    }
+
+    @Override
+    public void apply(AST ast) {
+        if (ast.slots < 0) {
+            new Resolver().resolve(ast);
+        }
+        slotNumbers = new int[Math.max(ast.slots, 1)];
+        Arrays.fill(slotNumbers, -1);
+
+        for (ASTNode child : ast.root.getChildren()) {
+            if (child instanceof VariableAssignment) {
+                foldVariableAssignment((VariableAssignment) child);
+            }
+        }
+        for (ASTNode child : ast.root.getChildren()) {
+            if (child instanceof Stylerule) {
+                foldStylerule((Stylerule) child);
+            }
+        }
+    }
+
+    /**
+     * @return the number of distinct values and operations seen so far
+     */
+    public int getDistinctExpressions() {
+        return size;
+    }
+
+    private void foldStylerule(Stylerule stylerule) {
+        StyleruleEvent event = new StyleruleEvent();
+        event.begin();
+        long lookupsBefore = lookups;
+        long foldedBefore = folded;
+        foldBlock(stylerule.body);
+        event.commit(StyleruleEvent.FOLD, stylerule, lookups - lookupsBefore, folded - foldedBefore);
+    }
+
+    //Assignments are folded before the declarations, matching the slots the Resolver handed out
+    private void foldBlock(List<ASTNode> body) {
+        for (ASTNode statement : body) {
+            if (statement instanceof VariableAssignment) {
+                foldVariableAssignment((VariableAssignment) statement);
+            }
+        }
+        for (ASTNode statement : body) {
+            if (statement instanceof Declaration) {
+                Declaration declaration = (Declaration) statement;
+                declaration.expression = foldExpression(declaration.expression);
+            } else if (statement instanceof IfClause) {
+                IfClause ifClause = (IfClause) statement;
+                ifClause.conditionalExpression = foldExpression(ifClause.conditionalExpression);
+                foldBlock(ifClause.body);
+                if (ifClause.elseClause != null) {
+                    foldBlock(ifClause.elseClause.body);
+                }
+            }
+        }
+    }
+
+    private void foldVariableAssignment(VariableAssignment variableAssignment) {
+        variableAssignment.expression = foldExpression(variableAssignment.expression);
+        int slot = variableAssignment.name.slot;
+        if (slot >= slotNumbers.length) {
+            int length = slotNumbers.length;
+            slotNumbers = Arrays.copyOf(slotNumbers, Math.max(slot + 1, length * 2));
+            Arrays.fill(slotNumbers, length, slotNumbers.length, -1);
+        }
+        slotNumbers[slot] = number(variableAssignment.expression);
+    }
+
+    private Expression foldExpression(Expression expression) {
+        if (!(expression instanceof Operation)) {
+            return expression;
+        }
+        //number() may grow the values array, so it is read afterwards
+        int number = number(expression);
+        long value = values[number];
+        if (value == Values.NONE) {
+            return expression;
+        }
+        folded++;
+        return Values.toLiteral(value);
+    }
+
+    private int number(Expression expression) {
+        if (expression instanceof VariableReference) {
+            lookups++;
+            int slot = ((VariableReference) expression).slot;
+            return slot >= 0 && slot < slotNumbers.length && slotNumbers[slot] >= 0
+                    ? slotNumbers[slot]
+                    : numberOfValue(Values.NONE);
+        } else if (expression instanceof Operation) {
+            Operation operation = (Operation) expression;
+            int kind = Values.operator(operation);
+            int lhs = number(operation.lhs);
+            int rhs = number(operation.rhs);
+            long key = (long) kind << 61 | (long) lhs << OPERAND_BITS | rhs;
+            int number = find(key);
+            if (number < 0) {
+                number = numberOfValue(Values.apply(kind, values[lhs], values[rhs]));
+                insert(key, number);
+            }
+            return number;
+        }
+        return numberOfValue(Values.of(expression));
+    }
+
+    private int numberOfValue(long value) {
+        long key = (long) VALUE << 61 | value;
+        int number = find(key);
+        if (number < 0) {
+            if (valueCount == values.length) {
+                values = Arrays.copyOf(values, valueCount * 2);
+            }
+            number = valueCount++;
+            values[number] = value;
+            insert(key, number);
+        }
+        return number;
+    }
+
+    private int find(long key) {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return numbers[i];
+            }
+        }
+        return -1;
+    }
+
+    private void insert(long key, int number) {
+        if ((size + 1) * 2 > keys.length) {
+            grow();
+        }
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        while (keys[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        numbers[i] = number;
+        size++;
+        if (valueCount >= 1 << OPERAND_BITS) {
+            throw new IllegalStateException("Too many distinct values to fold");
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldNumbers = numbers;
+        keys = new long[oldKeys.length * 2];
+        numbers = new int[oldKeys.length * 2];
+        int mask = keys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != 0) {
+                int i = index(oldKeys[j], mask);
+                while (keys[i] != 0) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                numbers[i] = oldNumbers[j];
+            }
+        }
+    }
+
+    private static int index(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ hash >>> 32) & mask;
+    }
+}
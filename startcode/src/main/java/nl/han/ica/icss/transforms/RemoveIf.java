@@ -3,6 +3,7 @@ package nl.han.ica.icss.transforms;
 //BEGIN UITWERKING
 import nl.han.ica.icss.ast.*;
 import nl.han.ica.icss.ast.literals.BoolLiteral;
+import nl.han.ica.icss.events.StyleruleEvent;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -15,6 +16,29 @@ public class RemoveIf implements Transform {
         transformStylesheet(ast.root);
 
     }
+    /**
+     * Builds new stylerules with the selected declarations and shares everything else with ast,
+     * as the declarations themselves are not changed.
+     */
+    @Override
+    public AST transform(AST ast) {
+        ArrayList<ASTNode> body = new ArrayList<>(ast.root.body.size());
+        for (var child : ast.root.getChildren()) {
+            if (child instanceof Stylerule) {
+                Stylerule stylerule = new Stylerule();
+                stylerule.selectors = ((Stylerule) child).selectors;
+                stylerule.body = ((Stylerule) child).body;
+                transformStylerule(stylerule);
+                body.add(stylerule);
+            } else {
+                body.add(child);
+            }
+        }
+        AST result = new AST(new Stylesheet(body));
+        result.slots = ast.slots;
+        return result;
+    }
+
     private void transformStylesheet(Stylesheet node) {
         for (var child : node.getChildren()) {
             if (child instanceof Stylerule) {
@@ -22,8 +46,18 @@ public class RemoveIf implements Transform {
             }
         }
     }
+    /**
+     * Replaces the if clauses of a single, evaluated stylerule by the declarations they select.
+     */
+    public void apply(Stylerule stylerule) {
+        transformStylerule(stylerule);
+    }
+
     private void transformStylerule(Stylerule node) {
+        StyleruleEvent event = new StyleruleEvent();
+        event.begin();
         node.body = (ArrayList<ASTNode>) transformDeclarationBlock(node);
+        event.commit(StyleruleEvent.REMOVE_IF, node, 0, 0);
     }
 
     private List<ASTNode> transformIfClause(IfClause node) {
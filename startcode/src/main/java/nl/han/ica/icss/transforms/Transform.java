@@ -1,7 +1,29 @@
 package nl.han.ica.icss.transforms;
 
 import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.checker.Resolver;
 
 public interface Transform {
     void apply(AST ast);
+
+    /**
+     * Applies this transform to a copy of ast and returns the copy, leaving ast as it is, so a parsed
+     * and checked AST can be kept and transformed again or from several threads at once.
+     * The default copies every statement before applying the transform and shares only the expressions,
+     * selectors and property names with ast (see {@link AST#copy()}). Transforms that know which nodes they
+     * change, like {@link RemoveIf}, override it to build new nodes only there and share the rest.
+     *
+     * The copy shares the variable references, so ast must have been resolved with
+     * {@link Resolver#resolve} beforehand; resolving here would write to ast.
+     *
+     * @throws IllegalStateException if ast has not been resolved
+     */
+    default AST transform(AST ast) {
+        if (ast.slots < 0) {
+            throw new IllegalStateException("Resolve the AST before transforming it");
+        }
+        AST copy = ast.copy();
+        apply(copy);
+        return copy;
+    }
 }
@@ -0,0 +1,212 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.ast.Expression;
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.Operation;
+import nl.han.ica.icss.ast.VariableReference;
+import nl.han.ica.icss.ast.literals.*;
+import nl.han.ica.icss.ast.operations.AddOperation;
+import nl.han.ica.icss.ast.operations.MultiplyOperation;
+import nl.han.ica.icss.ast.operations.SubtractOperation;
+
+import java.util.function.IntToLongFunction;
+
+/**
+ * Evaluated values packed into a long: the unit tag in the high 32 bits and the value in the low 32 bits.
+ * Colours are stored as their 24 bit RGB number and booleans as 0 or 1.
+ *
+ * {@link #NONE} stands for an invalid operation or an undefined variable, like null did for literals.
+ * Arithmetic on packed values allocates nothing; {@link #toLiteral} returns an AST literal when
+ * a result has to be written back into the tree.
+ *
+ * {@link #evaluate} and {@link #apply} are the only place operations are computed; the transforms
+ * and the bytecode compiler and machine all go through them.
+ */
+public final class Values {
+
+    public static final int NONE_TAG = 0;
+    public static final int PIXEL_TAG = 1;
+    public static final int PERCENTAGE_TAG = 2;
+    public static final int SCALAR_TAG = 3;
+    public static final int COLOR_TAG = 4;
+    public static final int BOOL_TAG = 5;
+
+    public static final long NONE = 0;
+
+    //Operators, as operator() returns them and apply() takes them.
+    //Numbered after the PUSH and LOAD opcodes, so the bytecode uses them as opcodes as well
+    public static final int ADD = 2;
+    public static final int SUBTRACT = 3;
+    public static final int MULTIPLY = 4;
+
+    private Values() {
+    }
+
+    public static long pack(int tag, int value) {
+        return (long) tag << 32 | (value & 0xFFFFFFFFL);
+    }
+
+    public static int tag(long value) {
+        return (int) (value >>> 32);
+    }
+
+    public static int value(long value) {
+        return (int) value;
+    }
+
+    public static long pixel(int value) {
+        return pack(PIXEL_TAG, value);
+    }
+
+    public static long percentage(int value) {
+        return pack(PERCENTAGE_TAG, value);
+    }
+
+    public static long scalar(int value) {
+        return pack(SCALAR_TAG, value);
+    }
+
+    public static long color(int rgb) {
+        return pack(COLOR_TAG, rgb);
+    }
+
+    public static long bool(boolean value) {
+        return pack(BOOL_TAG, value ? 1 : 0);
+    }
+
+    /**
+     * @return the packed value of a literal, or NONE for anything else
+     */
+    public static long of(Expression literal) {
+        if (literal instanceof PixelLiteral) {
+            return pixel(((PixelLiteral) literal).value);
+        } else if (literal instanceof PercentageLiteral) {
+            return percentage(((PercentageLiteral) literal).value);
+        } else if (literal instanceof ScalarLiteral) {
+            return scalar(((ScalarLiteral) literal).value);
+        } else if (literal instanceof ColorLiteral) {
+            String text = ((ColorLiteral) literal).value;
+            return color(Integer.parseInt(text, 1, text.length(), 16));
+        } else if (literal instanceof BoolLiteral) {
+            return bool(((BoolLiteral) literal).value);
+        }
+        return NONE;
+    }
+
+    /**
+     * @return the shared literal holding value (see {@link Literals}), or null for NONE
+     */
+    public static Literal toLiteral(long value) {
+        switch (tag(value)) {
+            case PIXEL_TAG:
+                return Literals.pixel(value(value));
+            case PERCENTAGE_TAG:
+                return Literals.percentage(value(value));
+            case SCALAR_TAG:
+                return Literals.scalar(value(value));
+            case COLOR_TAG:
+                return Literals.color(value(value));
+            case BOOL_TAG:
+                return Literals.bool(value(value) != 0);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return the sum of two pixel or two percentage values, otherwise NONE
+     */
+    public static long add(long lhs, long rhs) {
+        int tag = tag(lhs);
+        if (tag != tag(rhs) || (tag != PIXEL_TAG && tag != PERCENTAGE_TAG)) {
+            return NONE;
+        }
+        return pack(tag, value(lhs) + value(rhs));
+    }
+
+    /**
+     * @return the difference of two pixel or two percentage values, otherwise NONE
+     */
+    public static long subtract(long lhs, long rhs) {
+        int tag = tag(lhs);
+        if (tag != tag(rhs) || (tag != PIXEL_TAG && tag != PERCENTAGE_TAG)) {
+            return NONE;
+        }
+        return pack(tag, value(lhs) - value(rhs));
+    }
+
+    /**
+     * @return the product of a scalar and a pixel or percentage value, in either order, otherwise NONE
+     */
+    public static long multiply(long lhs, long rhs) {
+        int lhsTag = tag(lhs);
+        int rhsTag = tag(rhs);
+        if (lhsTag == SCALAR_TAG && (rhsTag == PIXEL_TAG || rhsTag == PERCENTAGE_TAG)) {
+            return pack(rhsTag, value(lhs) * value(rhs));
+        } else if (rhsTag == SCALAR_TAG && (lhsTag == PIXEL_TAG || lhsTag == PERCENTAGE_TAG)) {
+            return pack(lhsTag, value(lhs) * value(rhs));
+        }
+        return NONE;
+    }
+
+    /**
+     * @return the operator of operation: {@link #ADD}, {@link #SUBTRACT} or {@link #MULTIPLY}
+     * @throws IllegalArgumentException for any other operation
+     */
+    public static int operator(Operation operation) {
+        if (operation instanceof AddOperation) {
+            return ADD;
+        } else if (operation instanceof SubtractOperation) {
+            return SUBTRACT;
+        } else if (operation instanceof MultiplyOperation) {
+            return MULTIPLY;
+        }
+        throw new IllegalArgumentException("Unknown operation " + operation.getNodeLabel());
+    }
+
+    /**
+     * @return the result of operator on two packed values, NONE if it is not defined for them
+     * @throws IllegalArgumentException for an unknown operator
+     */
+    public static long apply(int operator, long lhs, long rhs) {
+        switch (operator) {
+            case ADD:
+                return add(lhs, rhs);
+            case SUBTRACT:
+                return subtract(lhs, rhs);
+            case MULTIPLY:
+                return multiply(lhs, rhs);
+            default:
+                throw new IllegalArgumentException("Unknown operator " + operator);
+        }
+    }
+
+    /**
+     * @param slots the packed value of a variable by the slot the Resolver gave its assignment
+     * @return the packed value of a resolved expression
+     */
+    public static long evaluate(Expression expression, IntToLongFunction slots) {
+        return evaluate(expression, slots, Values::apply);
+    }
+
+    /**
+     * Evaluates a resolved expression like {@link #evaluate(Expression, IntToLongFunction)},
+     * computing its operations with operators, e.g. a cache in front of {@link #apply}.
+     */
+    public static long evaluate(Expression expression, IntToLongFunction slots, Operators operators) {
+        if (expression instanceof VariableReference) {
+            return slots.applyAsLong(((VariableReference) expression).slot);
+        } else if (expression instanceof Operation) {
+            Operation operation = (Operation) expression;
+            return operators.apply(operator(operation), evaluate(operation.lhs, slots, operators), evaluate(operation.rhs, slots, operators));
+        }
+        return of(expression);
+    }
+
+    /**
+     * Computes an operator on two packed values, as {@link #apply} does.
+     */
+    public interface Operators {
+        long apply(int operator, long lhs, long rhs);
+    }
+}
@@ -0,0 +1,290 @@
+package nl.han.ica.icss.workload;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates synthetic ICSS stylesheets for benchmarks and soak tests.
+ *
+ * The output only depends on the settings below, so the same seed always gives the same stylesheet.
+ * Every stylesheet uses every rule of the grammar and passes the checker: width and height get pixel or
+ * percentage expressions, color and background-color get colours, and if clauses test boolean variables.
+ *
+ * Usage from the command line: WorkloadGenerator [-setting value]... > output.icss
+ * where setting is any of the public fields, e.g. -rules 10000 -ifNestingDepth 8.
+ */
+public class WorkloadGenerator {
+
+    public long seed = 42;
+    public int globalVariables = 16;
+    public int rules = 100;
+    public int declarationsPerRule = 4;
+    public int localVariablesPerRule = 1;
+    public int ifClausesPerRule = 1;
+    public int ifNestingDepth = 2;
+    public double elseProbability = 0.5;
+    //Maximum number of terms in an arithmetic expression
+    public int expressionTerms = 3;
+    //Relative frequency of the operators in arithmetic expressions
+    public int addWeight = 2;
+    public int subtractWeight = 1;
+    public int multiplyWeight = 1;
+
+    private static final String[] TAGS = {"a", "p", "div", "span", "ul", "li", "h1", "body"};
+    private static final String[] MEASUREMENT_PROPERTIES = {"width", "height"};
+    private static final String[] COLOR_PROPERTIES = {"color", "background-color"};
+
+    private enum Kind { PIXEL, PERCENTAGE, COLOR, BOOL, SCALAR }
+
+    private Random random;
+    private Appendable out;
+    private final List<List<String>> globals = new ArrayList<>();
+    private final List<List<String>> locals = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        WorkloadGenerator generator = new WorkloadGenerator();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            generator.set(args[i].substring(1), args[i + 1]);
+        }
+        Writer writer = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        generator.generate(writer);
+        writer.flush();
+    }
+
+    /**
+     * Sets a public field by name, e.g. set("rules", "10000").
+     */
+    public WorkloadGenerator set(String setting, String value) {
+        try {
+            Field field = WorkloadGenerator.class.getField(setting);
+            if (field.getType() == long.class) {
+                field.setLong(this, Long.parseLong(value));
+            } else if (field.getType() == int.class) {
+                field.setInt(this, Integer.parseInt(value));
+            } else {
+                field.setDouble(this, Double.parseDouble(value));
+            }
+        } catch (NoSuchFieldException | IllegalAccessException e) {
+            throw new IllegalArgumentException("Unknown setting " + setting, e);
+        }
+        return this;
+    }
+
+    public String generate() {
+        StringBuilder s = new StringBuilder();
+        try {
+            generate(s);
+        } catch (IOException e) {
+            //A StringBuilder does not throw
+            throw new UncheckedIOException(e);
+        }
+        return s.toString();
+    }
+
+    public void generate(Appendable out) throws IOException {
+        this.out = out;
+        random = new Random(seed);
+        globals.clear();
+        locals.clear();
+        for (int i = 0; i < Kind.values().length; i++) {
+            globals.add(new ArrayList<>());
+            locals.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < globalVariables; i++) {
+            //Cycle through the kinds so every kind is present once there are five globals
+            generateGlobal(Kind.values()[i % Kind.values().length], i);
+        }
+        out.append('\n');
+        for (int i = 0; i < rules; i++) {
+            generateStylerule(i);
+        }
+    }
+
+    private void generateGlobal(Kind kind, int index) throws IOException {
+        String name = kind.name().charAt(0) + kind.name().substring(1).toLowerCase() + index;
+        out.append(name).append(" := ");
+        switch (kind) {
+            case PIXEL:
+            case PERCENTAGE:
+                //The checker only derives the type of an operation from its literal operands
+                appendLiteralExpression(kind);
+                break;
+            case COLOR:
+                appendColorLiteral();
+                break;
+            case BOOL:
+                out.append(random.nextBoolean() ? "TRUE" : "FALSE");
+                break;
+            default:
+                out.append(Integer.toString(random.nextInt(10)));
+        }
+        out.append(";\n");
+        globals.get(kind.ordinal()).add(name);
+    }
+
+    private void generateStylerule(int index) throws IOException {
+        switch (random.nextInt(3)) {
+            case 0:
+                out.append(TAGS[random.nextInt(TAGS.length)]);
+                break;
+            case 1:
+                out.append(".class-").append(Integer.toString(index));
+                break;
+            default:
+                out.append("#id-").append(Integer.toString(index));
+        }
+        out.append(" {\n");
+        for (List<String> names : locals) {
+            names.clear();
+        }
+        for (int i = 0; i < localVariablesPerRule; i++) {
+            generateLocal(i, 1);
+        }
+        int[] ifPositions = new int[ifClausesPerRule];
+        for (int i = 0; i < ifClausesPerRule; i++) {
+            ifPositions[i] = random.nextInt(declarationsPerRule + 1);
+        }
+        for (int i = 0; i <= declarationsPerRule; i++) {
+            for (int position : ifPositions) {
+                if (position == i) {
+                    generateIfClause(ifNestingDepth, 1);
+                }
+            }
+            if (i < declarationsPerRule) {
+                generateDeclaration(1);
+            }
+        }
+        out.append("}\n");
+    }
+
+    private void generateLocal(int index, int indent) throws IOException {
+        Kind kind = random.nextBoolean() ? Kind.PIXEL : Kind.PERCENTAGE;
+        String name = "Local" + kind.name().charAt(0) + kind.name().substring(1).toLowerCase() + index;
+        indent(indent);
+        out.append(name).append(" := ");
+        appendLiteralExpression(kind);
+        out.append(";\n");
+        locals.get(kind.ordinal()).add(name);
+    }
+
+    private void generateIfClause(int depth, int indent) throws IOException {
+        indent(indent);
+        out.append("if[").append(pick(Kind.BOOL, false)).append("] {\n");
+        generateDeclaration(indent + 1);
+        if (depth > 1) {
+            generateIfClause(depth - 1, indent + 1);
+        }
+        generateDeclaration(indent + 1);
+        indent(indent);
+        out.append("}");
+        if (random.nextDouble() < elseProbability) {
+            out.append(" else {\n");
+            generateDeclaration(indent + 1);
+            indent(indent);
+            out.append("}");
+        }
+        out.append('\n');
+    }
+
+    private void generateDeclaration(int indent) throws IOException {
+        indent(indent);
+        if (random.nextBoolean()) {
+            out.append(MEASUREMENT_PROPERTIES[random.nextInt(MEASUREMENT_PROPERTIES.length)]).append(": ");
+            appendExpression(random.nextBoolean() ? Kind.PIXEL : Kind.PERCENTAGE);
+        } else {
+            out.append(COLOR_PROPERTIES[random.nextInt(COLOR_PROPERTIES.length)]).append(": ");
+            String variable = pick(Kind.COLOR, true);
+            if (variable != null && random.nextBoolean()) {
+                out.append(variable);
+            } else {
+                appendColorLiteral();
+            }
+        }
+        out.append(";\n");
+    }
+
+    //Terms joined by + and -, where a term is an operand or a scalar times an operand
+    private void appendExpression(Kind kind) throws IOException {
+        int terms = 1 + random.nextInt(Math.max(expressionTerms, 1));
+        for (int i = 0; i < terms; i++) {
+            if (i > 0) {
+                out.append(random.nextInt(addWeight + subtractWeight) < addWeight ? " + " : " - ");
+            }
+            if (random.nextInt(addWeight + subtractWeight + multiplyWeight) < multiplyWeight) {
+                if (random.nextBoolean()) {
+                    appendScalarLiteral();
+                    out.append(" * ");
+                    appendOperand(kind);
+                } else {
+                    appendOperand(kind);
+                    out.append(" * ");
+                    appendScalarLiteral();
+                }
+            } else {
+                appendOperand(kind);
+            }
+        }
+    }
+
+    //An expression that ends in a literal, so the checker can derive its type
+    private void appendLiteralExpression(Kind kind) throws IOException {
+        if (expressionTerms > 1 && random.nextBoolean()) {
+            appendLiteral(kind);
+            out.append(" * ");
+            appendScalarLiteral();
+            out.append(random.nextInt(addWeight + subtractWeight) < addWeight ? " + " : " - ");
+        }
+        appendLiteral(kind);
+    }
+
+    private void appendOperand(Kind kind) throws IOException {
+        String variable = pick(kind, true);
+        if (variable != null && random.nextBoolean()) {
+            out.append(variable);
+        } else {
+            appendLiteral(kind);
+        }
+    }
+
+    private void appendLiteral(Kind kind) throws IOException {
+        out.append(Integer.toString(random.nextInt(kind == Kind.PIXEL ? 1000 : 100)));
+        out.append(kind == Kind.PIXEL ? "px" : "%");
+    }
+
+    private void appendScalarLiteral() throws IOException {
+        out.append(Integer.toString(1 + random.nextInt(9)));
+    }
+
+    private void appendColorLiteral() throws IOException {
+        out.append(String.format("#%06x", random.nextInt(0x1000000)));
+    }
+
+    //Picks a variable of the given kind, or returns null if there is none
+    private String pick(Kind kind, boolean includeLocals) {
+        List<String> global = globals.get(kind.ordinal());
+        List<String> local = includeLocals ? locals.get(kind.ordinal()) : List.of();
+        int count = global.size() + local.size();
+        if (count == 0) {
+            if (kind == Kind.BOOL) {
+                throw new IllegalStateException("if clauses need at least four global variables");
+            }
+            return null;
+        }
+        int index = random.nextInt(count);
+        return index < global.size() ? global.get(index) : local.get(index - global.size());
+    }
+
+    private void indent(int indent) throws IOException {
+        for (int i = 0; i < indent; i++) {
+            out.append('\t');
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelRulesTest {
+
+	@Test
+	void testCompileMatchesSequential() {
+		Pipeline sequential = new Pipeline();
+		Pipeline sut = new Pipeline();
+		sut.setParallelRules(true);
+		WorkloadGenerator generator = new WorkloadGenerator();
+		generator.rules = 1000;
+		generator.ifNestingDepth = 2;
+		String input = generator.generate();
+
+		assertEquals(sequential.compile(input).getCss(), sut.compile(input).getCss());
+		assertEquals(sequential.compile(input + "a { width: Missing; }").getErrors(), sut.compile(input + "a { width: Missing; }").getErrors());
+	}
+}
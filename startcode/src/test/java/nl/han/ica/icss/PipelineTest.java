@@ -0,0 +1,124 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.parser.ParserPool;
+import nl.han.ica.icss.transforms.EvaluateAndPrune;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipelineTest {
+
+	static final String LEVEL3_CSS =
+			"p {\n" +
+			"\tbackground-color: #ffffff;\n" +
+			"\twidth: 500px;\n" +
+			"\tcolor: #124532;\n" +
+			"\tbackground-color: #000000;\n" +
+			"\theight: 20px;\n" +
+			"}\n" +
+			"a {\n" +
+			"\tcolor: #ff0000;\n" +
+			"}\n" +
+			"#menu {\n" +
+			"\twidth: 520px;\n" +
+			"}\n" +
+			".menu {\n" +
+			"\tcolor: #000000;\n" +
+			"\tbackground-color: #ff0000;\n" +
+			"}\n" +
+			"\n";
+
+	static String readResource(String resource) throws IOException {
+		try (InputStream inputStream = PipelineTest.class.getClassLoader().getResourceAsStream(resource)) {
+			return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	void testCompileLevel3() throws IOException {
+		Compilation sut = new Pipeline().compile(readResource("level3.icss"));
+
+		assertTrue(sut.isSuccessful(), sut.getErrors().toString());
+		assertEquals(LEVEL3_CSS, sut.getCss());
+	}
+
+	@Test
+	void testCompileAfterClearingDFACache() throws IOException {
+		Pipeline pipeline = new Pipeline();
+		pipeline.compile(readResource("level3.icss"));
+
+		ParserPool.clearDFACache();
+		Compilation sut = pipeline.compile(readResource("level3.icss"));
+
+		assertTrue(sut.isSuccessful(), sut.getErrors().toString());
+		assertEquals(LEVEL3_CSS, sut.getCss());
+		ParserPool.clearDFACache();
+		assertFalse(pipeline.compile("p { width: ; }").isSuccessful());
+	}
+
+	@Test
+	void testCompileRecordsStageMetrics() throws IOException {
+		Pipeline pipeline = new Pipeline();
+		assertNull(pipeline.compile(readResource("level3.icss")).getMetrics());
+
+		pipeline.setRecordMetrics(true);
+		PipelineMetrics sut = pipeline.compile(readResource("level3.icss")).getMetrics();
+
+		List<String> stages = new ArrayList<>();
+		for (StageMetrics stage : sut.getStages()) {
+			stages.add(stage.getStage());
+			assertTrue(stage.getWallNanos() >= 0);
+		}
+		assertEquals(List.of("lex", "parse", "resolve", "check", "transform:EvaluateAndPrune", "generate"), stages);
+	}
+
+	@Test
+	void testCompileChecksRegisteredProperties() {
+		Pipeline pipeline = new Pipeline();
+
+		assertTrue(pipeline.compile("p { margin-top: 10%; z-index: 2; border-color: #000000; }").isSuccessful());
+		assertEquals(List.of("ERROR: Property 'z-index' has invalid type", "ERROR: Property 'colour' is not a known property"),
+				pipeline.compile("p { z-index: 2px; colour: #000000; }").getErrors());
+		assertEquals(List.of("ERROR: Property 'z-index' has invalid type"),
+				pipeline.compile("W := 1px; p { z-index: 2px + 1px; width: W * 2 + 1px; }").getErrors());
+		assertTrue(pipeline.compile("W := 10px; A := W * 2; p { width: A; }").isSuccessful());
+		assertEquals(List.of("ERROR: Property 'z-index' has invalid type"),
+				pipeline.compile("W := 10px; A := W * 2; p { z-index: A; }").getErrors());
+	}
+
+	@Test
+	void testCompileReportsSyntaxErrors() {
+		Compilation sut = new Pipeline().compile("p { width: ; }");
+
+		assertFalse(sut.isSuccessful());
+		assertNull(sut.getCss());
+		assertTrue(sut.getErrors().get(0).startsWith("Syntax error"));
+	}
+
+	@Test
+	void testCompileOnSharedInstance() throws Exception {
+		Pipeline pipeline = new Pipeline();
+		String input = readResource("level3.icss");
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<Compilation>> results = new ArrayList<>();
+			for (int i = 0; i < 64; i++) {
+				results.add(executor.submit(() -> pipeline.compile(input)));
+			}
+			for (Future<Compilation> result : results) {
+				assertEquals(LEVEL3_CSS, result.get().getCss());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,45 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.workload.WorkloadGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingCompilerTest {
+
+	String compile(String input, List<String> errors) throws IOException {
+		StringWriter output = new StringWriter();
+		errors.addAll(new StreamingCompiler().compile(new StringReader(input), output));
+		return output.toString();
+	}
+
+	@Test
+	void testCompileMatchesPipeline() throws IOException {
+		WorkloadGenerator generator = new WorkloadGenerator();
+		generator.rules = 200;
+		generator.localVariablesPerRule = 2;
+		generator.ifNestingDepth = 2;
+		generator.elseProbability = 0.5;
+
+		for (String input : List.of(PipelineTest.readResource("level3.icss"), generator.generate())) {
+			List<String> errors = new ArrayList<>();
+			assertEquals(new Pipeline().compile(input).getCss(), compile(input, errors));
+			assertEquals(List.of(), errors);
+		}
+	}
+
+	@Test
+	void testCompileStopsAtSyntaxError() throws IOException {
+		List<String> errors = new ArrayList<>();
+		String sut = compile("p { width: 1px; } a { width: ; } b { width: 2px; }", errors);
+
+		assertEquals("p {\n\twidth: 1px;\n}\n\n", sut);
+		assertEquals(List.of("Syntax error: mismatched input ';' expecting {'TRUE', 'FALSE', PIXELSIZE, PERCENTAGE, SCALAR, COLOR, CAPITAL_IDENT}"), errors);
+	}
+}
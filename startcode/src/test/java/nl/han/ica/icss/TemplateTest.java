@@ -0,0 +1,56 @@
+package nl.han.ica.icss;
+
+import nl.han.ica.icss.ast.Literal;
+import nl.han.ica.icss.ast.literals.Literals;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static nl.han.ica.icss.PipelineTest.LEVEL3_CSS;
+import static nl.han.ica.icss.PipelineTest.readResource;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TemplateTest {
+
+	@Test
+	void testRenderOverriddenGlobals() throws IOException {
+		Template sut = new Pipeline().compileTemplate(readResource("level3.icss"));
+
+		assertEquals(LEVEL3_CSS, sut.render());
+		assertEquals(LEVEL3_CSS.replace("500px", "100px").replace("520px", "120px").replace("#000000;\n\theight", "#ff0000;\n\theight"),
+				sut.render(Map.of("ParWidth", Literals.pixel(100), "UseLinkColor", Literals.TRUE)));
+		assertEquals(LEVEL3_CSS, sut.render());
+		assertThrows(IllegalArgumentException.class, () -> sut.render(Map.of("LinkColor", Literals.pixel(1))));
+		assertThrows(IllegalArgumentException.class, () -> sut.render(Map.of("Missing", Literals.pixel(1))));
+	}
+
+	@Test
+	void testRenderFromManyThreads() throws Exception {
+		Template sut = new Pipeline().compileTemplate(readResource("level3.icss"));
+		List<Map<String, ? extends Literal>> overrides = new ArrayList<>();
+		List<String> expected = new ArrayList<>();
+		for (int i = 0; i < 64; i++) {
+			overrides.add(Map.of("ParWidth", Literals.pixel(i), "UseLinkColor", i % 2 == 0 ? Literals.TRUE : Literals.FALSE));
+			expected.add(sut.render(overrides.get(i)));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<String>> results = new ArrayList<>();
+			for (Map<String, ? extends Literal> override : overrides) {
+				results.add(executor.submit(() -> sut.render(override)));
+			}
+			for (int i = 0; i < results.size(); i++) {
+				assertEquals(expected.get(i), results.get(i).get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package nl.han.ica.icss.bytecode;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import nl.han.ica.icss.ast.literals.ScalarLiteral;
+import nl.han.ica.icss.checker.Resolver;
+import nl.han.ica.icss.transforms.Values;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StackMachineTest {
+
+	Stylerule resolve(String source) {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(source);
+		new Resolver().resolve(pipeline.getAST());
+		return (Stylerule) pipeline.getAST().root.body.get(1);
+	}
+
+	@Test
+	void testRunWithDifferentVariables() {
+		Stylerule stylerule = resolve("A := 10px; p { width: A * 2 + 5px - 3px; }");
+		Program sut = new ExpressionCompiler().compile(((Declaration) stylerule.body.get(0)).expression);
+		StackMachine machine = new StackMachine();
+
+		assertFalse(sut.isConstant());
+		assertEquals(0, sut.getMaxSlot());
+		assertEquals(Values.pixel(22), machine.run(sut, new long[] { Values.pixel(10) }));
+		assertEquals(Values.pixel(42), machine.run(sut, new long[] { Values.pixel(20) }));
+		assertEquals(Values.NONE, machine.run(sut, new long[] { Values.color(0xff0000) }));
+	}
+
+	@Test
+	void testCompileFoldsConstantOperations() {
+		Stylerule stylerule = resolve("A := 10px; p { width: 2 * 5px + 1px; }");
+		Program sut = new ExpressionCompiler().compile(((Declaration) stylerule.body.get(0)).expression);
+
+		assertTrue(sut.isConstant());
+		assertEquals(-1, sut.getMaxSlot());
+		assertEquals(Values.pixel(11), new StackMachine().run(sut, new long[0]));
+	}
+
+	@Test
+	void testCompileRejectsUnknownOperations() {
+		Operation modulo = new Operation() {
+			@Override
+			public String getNodeLabel() {
+				return "Modulo";
+			}
+		};
+		modulo.lhs = new PixelLiteral(10);
+		modulo.rhs = new ScalarLiteral(3);
+
+		assertThrows(IllegalArgumentException.class, () -> new ExpressionCompiler().compile(modulo));
+	}
+}
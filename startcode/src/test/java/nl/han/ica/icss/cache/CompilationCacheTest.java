@@ -0,0 +1,132 @@
+package nl.han.ica.icss.cache;
+
+import nl.han.ica.icss.Compilation;
+import nl.han.ica.icss.Pipeline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompilationCacheTest {
+
+	@TempDir
+	Path temporary;
+	Path directory;
+	Pipeline pipeline = new Pipeline();
+
+	//Inputs whose entries all have the same size
+	static final String A = "p { width: 1px; }";
+	static final String B = "p { width: 2px; }";
+	static final String C = "p { width: 3px; }";
+
+	@BeforeEach
+	void setUp() throws IOException {
+		directory = Files.createDirectories(temporary.resolve("cache"));
+	}
+
+	Compilation compile(CompilationCache cache, String source) throws IOException {
+		Path file = temporary.resolve("input.icss");
+		Files.writeString(file, source);
+		return cache.compile(pipeline, file);
+	}
+
+	Set<Path> entries() throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(file -> file.toString().endsWith(".entry")).collect(Collectors.toSet());
+		}
+	}
+
+	//Compiles source into a cache without a bound and returns the entry it adds
+	Path store(String source) throws IOException {
+		Set<Path> before = new HashSet<>(entries());
+		compile(new CompilationCache(directory, Long.MAX_VALUE, "test"), source);
+		Set<Path> after = new HashSet<>(entries());
+		after.removeAll(before);
+		assertEquals(1, after.size());
+		return after.iterator().next();
+	}
+
+	@Test
+	void testEvictsLeastRecentlyUsed() throws IOException {
+		long size = Files.size(store(A));
+		CompilationCache sut = new CompilationCache(directory, 2 * size, "test");
+
+		compile(sut, B);
+		compile(sut, A);
+		compile(sut, C);
+		compile(sut, A);
+		compile(sut, B);
+
+		//A hit twice; B was evicted by C as the least recently used, and then C by B
+		assertEquals(2, sut.getHits());
+		assertEquals(3, sut.getMisses());
+		assertEquals(2, entries().size());
+		assertEquals(pipeline.compile(B).getCss(), compile(sut, B).getCss());
+	}
+
+	@Test
+	void testKeepsSizeBound() throws IOException {
+		long size = Files.size(store(A));
+		CompilationCache sut = new CompilationCache(directory, size, "test");
+
+		compile(sut, B);
+		compile(sut, C);
+
+		assertEquals(1, entries().size());
+		compile(sut, C);
+		assertEquals(1, sut.getHits());
+		assertEquals(2, sut.getMisses());
+	}
+
+	@Test
+	void testKeepsRecencyAcrossRestarts() throws IOException {
+		Path a = store(A);
+		Path b = store(B);
+		Path c = store(C);
+		Files.setLastModifiedTime(a, FileTime.fromMillis(3_000_000));
+		Files.setLastModifiedTime(b, FileTime.fromMillis(1_000_000));
+		Files.setLastModifiedTime(c, FileTime.fromMillis(2_000_000));
+
+		CompilationCache sut = new CompilationCache(directory, 2 * Files.size(a), "test");
+
+		assertEquals(Set.of(a, c), entries());
+		compile(sut, B);
+		assertEquals(Set.of(a, b), entries());
+		compile(sut, A);
+		assertEquals(1, sut.getHits());
+		assertEquals(1, sut.getMisses());
+	}
+
+	@Test
+	void testRecompilesDamagedEntry() throws IOException {
+		Path a = store(A);
+		Files.writeString(a, "damaged");
+		CompilationCache sut = new CompilationCache(directory, Long.MAX_VALUE, "test");
+
+		assertEquals(pipeline.compile(A).getCss(), compile(sut, A).getCss());
+		assertEquals(pipeline.compile(A).getCss(), compile(sut, A).getCss());
+		assertEquals(1, sut.getMisses());
+		assertEquals(1, sut.getHits());
+	}
+
+	@Test
+	void testMissesForOtherFingerprint() throws IOException {
+		store(A);
+		CompilationCache sut = new CompilationCache(directory, Long.MAX_VALUE, "other");
+
+		compile(sut, A);
+
+		assertEquals(0, sut.getHits());
+		assertEquals(2, entries().size());
+	}
+}
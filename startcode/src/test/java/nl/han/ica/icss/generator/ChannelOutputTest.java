@@ -0,0 +1,75 @@
+package nl.han.ica.icss.generator;
+
+import nl.han.ica.icss.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelOutputTest {
+
+	//Takes at most 3 bytes per write, like a slow socket
+	static class SlowChannel implements WritableByteChannel {
+		final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+		@Override
+		public int write(ByteBuffer src) {
+			int count = Math.min(3, src.remaining());
+			for (int i = 0; i < count; i++) {
+				written.write(src.get());
+			}
+			return count;
+		}
+
+		@Override
+		public boolean isOpen() {
+			return true;
+		}
+
+		@Override
+		public void close() {
+		}
+
+		String text() {
+			return new String(written.toByteArray(), StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	void testEncodesAcrossSmallBuffers() throws IOException {
+		//Two and three byte characters and a surrogate pair, split over buffers of 4 chars
+		String text = "p { content: café €😀; }\n".repeat(20);
+		SlowChannel first = new SlowChannel();
+		SlowChannel second = new SlowChannel();
+		ChannelOutput sut = new ChannelOutput(first, 4);
+
+		sut.append(text, 0, 7).append(text.charAt(7)).append(new StringBuilder(text.substring(8)));
+		sut.flush();
+		sut.setChannel(second).append(text);
+		sut.flush();
+
+		assertEquals(text, first.text());
+		assertEquals(text, second.text());
+	}
+
+	@Test
+	void testGeneratorReusesChannelOutput() throws IOException {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString("A := 10px; p { width: A + 2px; } a { color: #ff0000; }");
+		pipeline.check();
+		pipeline.transform();
+		String css = pipeline.generate();
+		Generator sut = new Generator();
+
+		for (int i = 0; i < 2; i++) {
+			SlowChannel channel = new SlowChannel();
+			sut.generate(pipeline.getAST(), channel);
+			assertEquals(css, channel.text());
+		}
+	}
+}
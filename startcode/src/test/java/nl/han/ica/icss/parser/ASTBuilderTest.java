@@ -0,0 +1,95 @@
+package nl.han.ica.icss.parser;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import nl.han.ica.icss.ast.*;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+
+import org.antlr.v4.runtime.*;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+class ASTBuilderTest {
+
+	AST buildTestFile(String resource) throws IOException {
+
+		//Open test file to parse
+		ClassLoader classLoader = this.getClass().getClassLoader();
+
+		InputStream inputStream = classLoader.getResourceAsStream(resource);
+		CharStream charStream = CharStreams.fromStream(inputStream);
+
+		//Setup collection of the parse error messages
+		List<String> messages = new ArrayList<>();
+		BaseErrorListener errorListener = new BaseErrorListener() {
+			public void syntaxError(Recognizer<?,?> recognizer, Object offendingSymbol, int line, int charPositionInLine, String msg, RecognitionException e) {
+				messages.add(msg);
+			}
+		};
+
+		//Parse & build AST without a parse tree
+		try {
+			AST ast = ParserPool.buildStylesheet(charStream, errorListener);
+			assertEquals(List.of(), messages);
+			return ast;
+		} finally {
+			ParserPool.release();
+		}
+	}
+
+	@Test
+	void testBuildLevel0() throws IOException {
+
+		AST sut = buildTestFile("level0.icss");
+		AST exp = Fixtures.uncheckedLevel0();
+		assertEquals(exp,sut);
+	}
+	@Test
+	void testBuildLevel1() throws IOException {
+
+		AST sut = buildTestFile("level1.icss");
+		AST exp = Fixtures.uncheckedLevel1();
+		assertEquals(exp,sut);
+	}
+	@Test
+	void testBuildLevel2() throws IOException {
+
+		AST sut = buildTestFile("level2.icss");
+		AST exp = Fixtures.uncheckedLevel2();
+		assertEquals(exp,sut);
+	}
+	@Test
+	void testBuildLevel3() throws IOException {
+
+		AST sut = buildTestFile("level3.icss");
+		AST exp = Fixtures.uncheckedLevel3();
+		assertEquals(exp,sut);
+	}
+	@Test
+	void testBuildInternsNames() {
+		AST sut = ParserPool.buildStylesheet(CharStreams.fromString("A := 1px; p { width: A; } p { width: A; }"), new BaseErrorListener());
+		ParserPool.release();
+
+		Stylerule first = (Stylerule) sut.root.body.get(1);
+		Stylerule second = (Stylerule) sut.root.body.get(2);
+		Declaration declaration = (Declaration) second.body.get(0);
+		assertSame("width", declaration.property.name);
+		assertSame(first.selectors.get(0).toString(), second.selectors.get(0).toString());
+		assertSame(((VariableReference) ((Declaration) first.body.get(0)).expression).name,
+				((VariableReference) declaration.expression).name);
+	}
+	@Test
+	void testBuildSharesLiterals() {
+		AST sut = ParserPool.buildStylesheet(CharStreams.fromString("p { width: 10px; height: 10px; color: #ff0000; } a { color: #ff0000; width: 100000px; }"), new BaseErrorListener());
+		ParserPool.release();
+
+		Stylerule first = (Stylerule) sut.root.body.get(0);
+		Stylerule second = (Stylerule) sut.root.body.get(1);
+		assertSame(((Declaration) first.body.get(0)).expression, ((Declaration) first.body.get(1)).expression);
+		assertSame(((Declaration) first.body.get(2)).expression, ((Declaration) second.body.get(0)).expression);
+		assertEquals(new PixelLiteral(100000), ((Declaration) second.body.get(1)).expression);
+	}
+}
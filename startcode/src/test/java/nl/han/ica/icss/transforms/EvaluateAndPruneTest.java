@@ -0,0 +1,45 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.Declaration;
+import nl.han.ica.icss.ast.IfClause;
+import nl.han.ica.icss.ast.Operation;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EvaluateAndPruneTest {
+
+	@Test
+	void testSkipsDeadBranches() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString("F := FALSE; p { if[F] { width: 1px + 2px; } else { width: 3px + 4px; } }");
+		Stylerule stylerule = (Stylerule) pipeline.getAST().root.body.get(1);
+		IfClause ifClause = (IfClause) stylerule.body.get(0);
+		Declaration dead = (Declaration) ifClause.body.get(0);
+
+		new EvaluateAndPrune().apply(pipeline.getAST());
+
+		assertEquals(List.of(stylerule), pipeline.getAST().root.body);
+		assertEquals(new PixelLiteral(7), ((Declaration) stylerule.body.get(0)).expression);
+		assertEquals(1, stylerule.body.size());
+		assertTrue(dead.expression instanceof Operation);
+	}
+
+	@Test
+	void testComputesRepeatedExpressionsOnce() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString("W := 10px; p { width: W + 20px; } a { height: W + 20px; width: 10px + 20px; } b { width: W * 2; }");
+		EvaluateAndPrune sut = new EvaluateAndPrune();
+		sut.apply(pipeline.getAST());
+
+		//W + 20px and 10px + 20px add the same values
+		assertEquals(2, sut.getComputedOperations());
+		assertEquals(new PixelLiteral(30), ((Declaration) ((Stylerule) pipeline.getAST().root.body.get(1)).body.get(1)).expression);
+		assertEquals(new PixelLiteral(20), ((Declaration) ((Stylerule) pipeline.getAST().root.body.get(2)).body.get(0)).expression);
+	}
+}
@@ -0,0 +1,24 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.Declaration;
+import nl.han.ica.icss.ast.Stylerule;
+import nl.han.ica.icss.ast.literals.PixelLiteral;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FoldConstantsTest {
+
+	@Test
+	void testComputesRepeatedExpressionsOnce() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString("W := 10px; p { width: W + 20px; } a { height: W + 20px; width: 10px + 20px; }");
+		FoldConstants sut = new FoldConstants();
+		sut.apply(pipeline.getAST());
+
+		//10px, 20px, 30px and one W + 20px; 10px + 20px has the same operands
+		assertEquals(4, sut.getDistinctExpressions());
+		assertEquals(new PixelLiteral(30), ((Declaration) ((Stylerule) pipeline.getAST().root.body.get(2)).body.get(0)).expression);
+	}
+}
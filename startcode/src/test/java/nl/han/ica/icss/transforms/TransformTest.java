@@ -0,0 +1,49 @@
+package nl.han.ica.icss.transforms;
+
+import nl.han.ica.icss.Pipeline;
+import nl.han.ica.icss.ast.AST;
+import nl.han.ica.icss.generator.Generator;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransformTest {
+
+	static String readResource(String resource) throws IOException {
+		try (InputStream inputStream = TransformTest.class.getClassLoader().getResourceAsStream(resource)) {
+			return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+		}
+	}
+
+	@Test
+	void testKeepsSourceAST() throws IOException {
+		String input = readResource("level3.icss");
+		String css = new Pipeline().compile(input).getCss();
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString(input);
+		pipeline.check();
+		AST source = pipeline.getAST();
+		String before = source.toString();
+
+		for (int i = 0; i < 2; i++) {
+			AST sut = source;
+			for (Transform transform : new Transform[] { new FoldConstants(), new EvalExpressions(), new RemoveIf() }) {
+				sut = transform.transform(sut);
+			}
+			assertEquals(css, new Generator().generate(sut));
+		}
+		assertEquals(before, source.toString());
+	}
+
+	@Test
+	void testRequiresResolvedAST() {
+		Pipeline pipeline = new Pipeline();
+		pipeline.parseString("W := 10px; p { width: W; }");
+
+		assertThrows(IllegalStateException.class, () -> new EvalExpressions().transform(pipeline.getAST()));
+	}
+}
@@ -0,0 +1,36 @@
+package nl.han.ica.icss.workload;
+
+import nl.han.ica.icss.Compilation;
+import nl.han.ica.icss.Pipeline;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadGeneratorTest {
+
+	@Test
+	void testSameSeedGivesSameStylesheet() {
+		WorkloadGenerator generator = new WorkloadGenerator();
+		String first = generator.generate();
+
+		assertEquals(first, generator.generate());
+		assertNotEquals(first, generator.set("seed", "43").generate());
+	}
+
+	@Test
+	void testGeneratedStylesheetsCompile() {
+		Pipeline pipeline = new Pipeline();
+		for (int seed = 0; seed < 50; seed++) {
+			WorkloadGenerator generator = new WorkloadGenerator();
+			generator.seed = seed;
+			generator.rules = 10;
+			generator.ifNestingDepth = 1 + seed % 5;
+			generator.expressionTerms = 1 + seed % 4;
+			generator.localVariablesPerRule = seed % 3;
+
+			Compilation sut = pipeline.compile(generator.generate());
+
+			assertTrue(sut.isSuccessful(), "seed " + seed + ": " + sut.getErrors());
+		}
+	}
+}